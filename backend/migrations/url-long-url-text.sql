@@ -0,0 +1,3 @@
+-- Widens url.long_url from VARCHAR(255) to TEXT for destinations up to 8192 characters. Run once per database in a
+-- quiet window: changing the column type copies the whole url table. Until then longer urls fail to save.
+ALTER TABLE url MODIFY long_url TEXT NOT NULL;
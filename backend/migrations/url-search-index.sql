@@ -0,0 +1,8 @@
+-- Url search index. Run once per database in a quiet window: adding the first FULLTEXT index rebuilds the url
+-- table. MySQL must run with ngram_token_size matching URL_SEARCH_NGRAM_SIZE (3). Backend pods started before the
+-- index existed keep using LIKE scans until they restart.
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+ALTER TABLE url ADD FULLTEXT INDEX url_search_ngram (hash, long_url) WITH PARSER ngram;
+
+SET SESSION innodb_ft_enable_stopword = ON;
@@ -2,8 +2,10 @@ package org.url.urlshortenerbe;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class UrlShortenerBeApplication {
 
     public static void main(String[] args) {
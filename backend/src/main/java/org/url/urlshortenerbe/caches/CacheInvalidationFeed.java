@@ -0,0 +1,198 @@
+package org.url.urlshortenerbe.caches;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.url.urlshortenerbe.entities.CacheInvalidation;
+import org.url.urlshortenerbe.repositories.CacheInvalidationRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Change log in MySQL that keeps the in-memory state of every pod in line with writes made on any of them
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationFeed {
+    private static final String INSERT_PREFIX = "INSERT INTO cache_invalidation (hash, created_at) VALUES ";
+    private static final String INSERT_ROW = "(?, ?)";
+
+    @Value("${cache-invalidation.page-size}")
+    private int pageSize;
+
+    // seconds a skipped id is retried before it is taken for a rolled back insert
+    @Value("${cache-invalidation.gap-timeout}")
+    private long gapTimeout;
+
+    // seconds
+    @Value("${cache-invalidation.retention}")
+    private long retention;
+
+    @Value("${cache-invalidation.compaction-batch-size}")
+    private int compactionBatchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationRepository cacheInvalidationRepository;
+
+    private final RedirectCache redirectCache;
+    private final HashBloomFilter hashBloomFilter;
+    private final RedirectSnapshot redirectSnapshot;
+    private final UrlDedupCache urlDedupCache;
+
+    private final SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    private long lastSeenId;
+    private long lastPolledAt;
+
+    // Ids the cursor went past without reading: a transaction that took a lower id can commit after a higher one
+    private final Map<Long, Long> gaps = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // Older rows describe changes this pod's empty caches have never seen, except a snapshot left on disk
+        long maxId = cacheInvalidationRepository.findMaxId();
+        long snapshotPosition = redirectSnapshot.startupFeedPosition();
+
+        lastSeenId = snapshotPosition < 0 ? maxId : Math.min(maxId, snapshotPosition);
+        lastPolledAt = System.currentTimeMillis();
+    }
+
+    // Call inside the transaction making the change, so the log row commits or rolls back with it
+    public void publish(Collection<String> hashes) {
+        if (hashes.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<String> rows = new ArrayList<>(hashes);
+
+        // Multi-row INSERTs, a bulk creation publishes thousands of hashes at once and IDENTITY keeps JPA from
+        // batching them
+        for (int from = 0; from < rows.size(); from += pageSize) {
+            List<String> page = rows.subList(from, Math.min(from + pageSize, rows.size()));
+
+            jdbcTemplate.update(
+                    INSERT_PREFIX + String.join(", ", Collections.nCopies(page.size(), INSERT_ROW)),
+                    (PreparedStatement ps) -> {
+                        int index = 1;
+
+                        for (String hash : page) {
+                            ps.setString(index++, hash);
+                            ps.setTimestamp(index++, now);
+                        }
+                    });
+        }
+
+        // This pod does not wait for its own poll. Applied after commit, or a load running in between would cache
+        // the old row again
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(hashes);
+                }
+            });
+        } else {
+            apply(hashes);
+        }
+    }
+
+    public void publish(String... hashes) {
+        publish(List.of(hashes));
+    }
+
+    @Scheduled(fixedDelayString = "${cache-invalidation.poll-interval}", timeUnit = TimeUnit.MILLISECONDS)
+    public void poll() {
+        long now = System.currentTimeMillis();
+
+        // Rows may have been compacted before this pod could read them, nothing held in memory can be trusted
+        if (now - lastPolledAt > retention * 1000) {
+            log.warn(
+                    "Cache invalidation feed not polled for {} ms, dropping the in-memory url state",
+                    now - lastPolledAt);
+            redirectCache.invalidateAll();
+            redirectSnapshot.discard();
+            urlDedupCache.invalidateAll();
+
+            // Aliases created on other pods may be missing from the filter, it answers "might exist" until rebuilt.
+            // Off the scheduler thread, the scan takes a while on a large table
+            hashBloomFilter.reset();
+            taskExecutorBuilder.threadNamePrefix("bloom-filter-").build().execute(hashBloomFilter::rebuild);
+        }
+
+        List<String> hashes = new ArrayList<>();
+
+        if (!gaps.isEmpty()) {
+            for (CacheInvalidation cacheInvalidation : cacheInvalidationRepository.findAllByIdIn(gaps.keySet())) {
+                gaps.remove(cacheInvalidation.getId());
+                hashes.add(cacheInvalidation.getHash());
+            }
+
+            gaps.values().removeIf(giveUpAt -> giveUpAt < now);
+        }
+
+        List<CacheInvalidation> cacheInvalidations;
+        do {
+            cacheInvalidations = cacheInvalidationRepository.findAllByIdGreaterThanOrderByIdAsc(
+                    lastSeenId, PageRequest.of(0, pageSize));
+
+            for (CacheInvalidation cacheInvalidation : cacheInvalidations) {
+                // A jump larger than a page is an auto increment skip, not in-flight transactions
+                if (cacheInvalidation.getId() - lastSeenId <= pageSize) {
+                    for (long id = lastSeenId + 1; id < cacheInvalidation.getId(); id++) {
+                        gaps.put(id, now + gapTimeout * 1000);
+                    }
+                }
+
+                lastSeenId = cacheInvalidation.getId();
+                hashes.add(cacheInvalidation.getHash());
+            }
+        } while (cacheInvalidations.size() == pageSize);
+
+        apply(hashes);
+
+        lastPolledAt = now;
+    }
+
+    @Scheduled(fixedDelayString = "${cache-invalidation.compaction-interval}", timeUnit = TimeUnit.SECONDS)
+    public void compact() {
+        Date before = Date.from(Instant.now().minusSeconds(retention));
+
+        long total = 0;
+        int deleted;
+        do {
+            deleted = cacheInvalidationRepository.deleteChunkCreatedBefore(before, compactionBatchSize);
+            total += deleted;
+        } while (deleted == compactionBatchSize);
+
+        if (total > 0) {
+            log.info("Compacted {} cache invalidation rows", total);
+        }
+    }
+
+    private void apply(Collection<String> hashes) {
+        if (hashes.isEmpty()) {
+            return;
+        }
+
+        redirectCache.invalidateAll(hashes);
+        redirectSnapshot.invalidate(hashes);
+        urlDedupCache.invalidateAll(hashes);
+
+        // Covers new hashes and new aliases created on other pods, an extra bit for a deleted hash is harmless
+        hashes.forEach(hashBloomFilter::put);
+    }
+}
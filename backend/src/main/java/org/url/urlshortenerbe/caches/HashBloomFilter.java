@@ -0,0 +1,113 @@
+package org.url.urlshortenerbe.caches;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.url.urlshortenerbe.repositories.UrlRepository;
+import org.url.urlshortenerbe.utils.BloomFilter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Answers "this hash definitely does not exist" without going to the database
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HashBloomFilter {
+    @Value("${redirect.bloom-filter.expected-insertions}")
+    private long expectedInsertions;
+
+    @Value("${redirect.bloom-filter.false-positive-probability}")
+    private double falsePositiveProbability;
+
+    @Value("${redirect.bloom-filter.page-size}")
+    private int pageSize;
+
+    private final UrlRepository urlRepository;
+
+    // null until the first build finishes, everything "might exist" in the meantime
+    private volatile BloomFilter filter;
+
+    // Filter being rebuilt, it receives the puts too so nothing created during the scan is lost
+    private volatile BloomFilter nextFilter;
+
+    // A rebuild can be requested while the scheduled one runs, they must not share nextFilter
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public boolean mightContain(String hash) {
+        BloomFilter current = filter;
+
+        return null == current || current.mightContain(hash);
+    }
+
+    public void put(String hash) {
+        // Read nextFilter first: once it is cleared, filter already points to the rebuilt one
+        BloomFilter next = nextFilter;
+        BloomFilter current = filter;
+
+        if (null != next) {
+            next.put(hash);
+        }
+
+        if (null != current) {
+            current.put(hash);
+        }
+    }
+
+    // Back to "everything might exist" until the next rebuild, for when puts made on other pods were missed
+    public void reset() {
+        filter = null;
+    }
+
+    // Built at startup and rebuilt periodically, which also drops the bits of hashes renamed since the last build
+    @Scheduled(fixedDelayString = "${redirect.bloom-filter.rebuild-interval}", timeUnit = TimeUnit.SECONDS)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            doRebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void doRebuild() {
+        long startedAt = System.currentTimeMillis();
+
+        // Leave headroom so the false positive rate holds until the next rebuild
+        BloomFilter next =
+                new BloomFilter(Math.max(expectedInsertions, urlRepository.count() * 2), falsePositiveProbability);
+        nextFilter = next;
+
+        long count = 0;
+        int lastId = 0;
+
+        try {
+            List<Object[]> rows;
+            do {
+                rows = urlRepository.findIdAndHashAfterId(lastId, PageRequest.of(0, pageSize));
+
+                for (Object[] row : rows) {
+                    lastId = (Integer) row[0];
+                    next.put((String) row[1]);
+                }
+
+                count += rows.size();
+            } while (rows.size() == pageSize);
+
+            filter = next;
+        } finally {
+            nextFilter = null;
+        }
+
+        log.info(
+                "Bloom filter rebuilt with {} hashes over {} bits in {} ms",
+                count,
+                next.bitSize(),
+                System.currentTimeMillis() - startedAt);
+    }
+}
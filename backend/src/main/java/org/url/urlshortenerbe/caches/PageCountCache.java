@@ -0,0 +1,43 @@
+package org.url.urlshortenerbe.caches;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Total row counts of the cursor paged lists. Someone paging through a list asks for the same COUNT(*) over and
+// over, a count a few seconds old is good enough for a "records" field
+@Component
+public class PageCountCache {
+    // seconds
+    @Value("${pagination.count-cache-ttl}")
+    private long ttl;
+
+    private Cache<String, Long> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(ttl))
+                .build();
+    }
+
+    public long get(String key, LongSupplier counter) {
+        Long count = cache.getIfPresent(key);
+
+        // Not cache.get(key, loader), which would hold a lock over the query
+        if (null == count) {
+            count = counter.getAsLong();
+            cache.put(key, count);
+        }
+
+        return count;
+    }
+}
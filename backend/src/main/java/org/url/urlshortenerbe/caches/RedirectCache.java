@@ -0,0 +1,116 @@
+package org.url.urlshortenerbe.caches;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+
+@Component
+@RequiredArgsConstructor
+public class RedirectCache {
+    @Value("${redirect.cache.maximum-size}")
+    private long maximumSize;
+
+    @Value("${redirect.cache.expire-after-write}")
+    private long expireAfterWrite;
+
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, RedirectEntry> cache;
+
+    // Bumped on every invalidation so a load that raced with one is not left in the cache
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // Caffeine evicts with W-TinyLFU, so the hot links survive a scan of one-off hashes
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWrite))
+                .recordStats()
+                .build();
+
+        // Publishes cache.gets{result=hit|miss}, cache.evictions and cache.size under the name "redirect"
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "redirect");
+    }
+
+    // The loader may return null for an unknown hash, in which case nothing is cached
+    public RedirectEntry get(String hash, Function<String, RedirectEntry> loader) {
+        RedirectEntry redirectEntry = cache.getIfPresent(hash);
+
+        if (null != redirectEntry) {
+            return redirectEntry;
+        }
+
+        // Not cache.get(hash, loader): Caffeine runs the loader inside ConcurrentHashMap.compute, which holds a
+        // monitor for the whole query and pins the carrier when running on virtual threads
+        long seen = invalidations.get();
+
+        redirectEntry = loader.apply(hash);
+
+        if (null != redirectEntry) {
+            cache.put(hash, redirectEntry);
+
+            // The entry may have been read before a concurrent update committed, drop it rather than serve it
+            if (invalidations.get() != seen) {
+                cache.invalidate(hash);
+            }
+        }
+
+        return redirectEntry;
+    }
+
+    public void put(String hash, RedirectEntry redirectEntry) {
+        cache.put(hash, redirectEntry);
+    }
+
+    // For bulk loads: pass invalidationCount() taken before the entries were read, same guard as get
+    public void putAll(Map<String, RedirectEntry> redirectEntries, long seen) {
+        cache.putAll(redirectEntries);
+
+        if (invalidations.get() != seen) {
+            cache.invalidateAll(redirectEntries.keySet());
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long invalidationCount() {
+        return invalidations.get();
+    }
+
+    public long maximumSize() {
+        return maximumSize;
+    }
+
+    public void invalidate(String hash) {
+        invalidations.incrementAndGet();
+        cache.invalidate(hash);
+    }
+
+    public void invalidateAll(Collection<String> hashes) {
+        invalidations.incrementAndGet();
+        cache.invalidateAll(hashes);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,146 @@
+package org.url.urlshortenerbe.caches;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.url.urlshortenerbe.entities.RollupGranularity;
+import org.url.urlshortenerbe.repositories.UrlRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Loads the most clicked live urls into the redirect cache on startup, and keeps the pod out of the readiness
+// group until that is done so a rollout does not send every hot link to MySQL at once
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedirectCacheWarmer implements HealthIndicator {
+    // Day rollups rather than raw clicks: a range read on the primary key (granularity, bucket_start) whose size
+    // follows the number of urls clicked in the window, not the number of clicks
+    private static final String RANK_SQL =
+            """
+			SELECT r.url_id
+			FROM click_rollup r
+			JOIN url u ON u.id = r.url_id
+			WHERE r.granularity = ? AND r.bucket_start >= ? AND u.deleted = FALSE AND u.expires_at > ?
+			GROUP BY r.url_id
+			ORDER BY SUM(r.clicks) DESC
+			LIMIT ?
+			""";
+
+    @Value("${redirect.warm-up.size}")
+    private int size;
+
+    @Value("${redirect.warm-up.page-size}")
+    private int pageSize;
+
+    // days of clicks used to rank the urls
+    @Value("${redirect.warm-up.click-window}")
+    private int clickWindow;
+
+    // seconds
+    @Value("${redirect.warm-up.timeout}")
+    private long timeout;
+
+    private final DataSource dataSource;
+    private final UrlRepository urlRepository;
+
+    private final RedirectCache redirectCache;
+
+    private final SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    private JdbcTemplate rankingJdbcTemplate;
+
+    private volatile long deadline = Long.MAX_VALUE;
+    private volatile boolean finished;
+    private volatile int loaded;
+
+    @PostConstruct
+    public void init() {
+        rankingJdbcTemplate = new JdbcTemplate(dataSource);
+
+        // The readiness deadline does not stop a query, this makes MySQL give up on the ranking at the same time
+        rankingJdbcTemplate.setQueryTimeout((int) timeout);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        deadline = System.currentTimeMillis() + timeout * 1000;
+
+        // Off the main thread so the probes can be answered while the cache fills
+        taskExecutorBuilder.threadNamePrefix("cache-warmer-").build().execute(this::warmUp);
+    }
+
+    @Override
+    public Health health() {
+        if (finished) {
+            return Health.up().withDetail("loaded", loaded).build();
+        }
+
+        // A slow or stuck warm-up must not keep the pod out of service forever
+        if (System.currentTimeMillis() > deadline) {
+            return Health.up()
+                    .withDetail("loaded", loaded)
+                    .withDetail("timedOut", true)
+                    .build();
+        }
+
+        return Health.outOfService().withDetail("loaded", loaded).build();
+    }
+
+    private void warmUp() {
+        long startedAt = System.currentTimeMillis();
+
+        try {
+            Date now = Date.from(Instant.now());
+            Date since = Date.from(Instant.now().minus(clickWindow, ChronoUnit.DAYS));
+
+            // Never load more than the cache would keep
+            int limit = (int) Math.min(size, redirectCache.maximumSize());
+
+            List<Integer> urlIds = rankingJdbcTemplate.queryForList(
+                    RANK_SQL, Integer.class, RollupGranularity.DAY.name(), since, now, limit);
+
+            for (int from = 0; from < urlIds.size(); from += pageSize) {
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("Redirect cache warm-up timed out after {} of {} urls", loaded, urlIds.size());
+                    return;
+                }
+
+                long seen = redirectCache.invalidationCount();
+                List<Object[]> rows = urlRepository.findRedirectRowsByIdIn(
+                        urlIds.subList(from, Math.min(from + pageSize, urlIds.size())));
+
+                Map<String, RedirectEntry> redirectEntries = new HashMap<>();
+                for (Object[] row : rows) {
+                    redirectEntries.put((String) row[0], RedirectEntry.fromRow(row));
+                }
+
+                redirectCache.putAll(redirectEntries, seen);
+                loaded += redirectEntries.size();
+            }
+
+            log.info("Redirect cache warmed up with {} urls in {} ms", loaded, System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException e) {
+            // A cold cache is slower, not broken, so the pod still becomes ready
+            log.error("Redirect cache warm-up failed after {} urls", loaded, e);
+        } finally {
+            finished = true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.url.urlshortenerbe.caches;
+
+import java.util.Date;
+
+import org.url.urlshortenerbe.entities.RedirectType;
+
+// What the redirect path needs to know about a short url, nothing more
+// redirectType is already resolved against the campaign and is null only when neither sets one
+public record RedirectEntry(
+        int id, String longUrl, Date expiresAt, boolean deleted, RedirectType redirectType, Date campaignEndDate) {
+
+    // Row layout of the UrlRepository redirect row queries, which put the hash first
+    public static RedirectEntry fromRow(Object[] row) {
+        return new RedirectEntry(
+                (Integer) row[1], (String) row[2], (Date) row[3], (Boolean) row[4], (RedirectType) row[5], (Date)
+                        row[6]);
+    }
+}
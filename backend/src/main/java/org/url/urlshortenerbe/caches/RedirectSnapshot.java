@@ -0,0 +1,349 @@
+package org.url.urlshortenerbe.caches;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.url.urlshortenerbe.entities.RedirectType;
+import org.url.urlshortenerbe.repositories.CacheInvalidationRepository;
+import org.url.urlshortenerbe.repositories.UrlRepository;
+import org.url.urlshortenerbe.utils.Base62Encoder;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Read-only file of every live url, memory mapped so millions of links resolve without heap or MySQL.
+// Layout: header, open addressing table of (key, record offset) slots, then the records.
+// The key is the base62 value of the hash with its length in the top 4 bits, custom aliases that do not fit
+// (other characters, more than 10 characters) are simply not in the snapshot.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedirectSnapshot {
+    private static final int MAGIC = 0x52534e50;
+    private static final int VERSION = 1;
+
+    // magic, version, slot count, entry count, created at, feed position
+    private static final int HEADER_SIZE = 32;
+    // key, record offset
+    private static final int SLOT_SIZE = 12;
+    // id, expires at, campaign end date, redirect type, url length
+    private static final int RECORD_HEADER_SIZE = 25;
+
+    private static final int MAX_HASH_LENGTH = 10;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final RedirectType[] REDIRECT_TYPES = RedirectType.values();
+
+    @Value("${redirect.snapshot.enabled}")
+    private boolean enabled;
+
+    @Value("${redirect.snapshot.path}")
+    private Path path;
+
+    @Value("${redirect.snapshot.page-size}")
+    private int pageSize;
+
+    // seconds, a snapshot older than the invalidation log cannot be brought up to date
+    @Value("${cache-invalidation.retention}")
+    private long retention;
+
+    private final UrlRepository urlRepository;
+    private final CacheInvalidationRepository cacheInvalidationRepository;
+
+    private final Base62Encoder base62Encoder;
+
+    private record Snapshot(MappedByteBuffer buffer, int slotCount, long feedPosition, Set<String> invalidated) {}
+
+    private volatile Snapshot snapshot;
+
+    // Hashes changed while the next snapshot is written, it may or may not have seen them
+    private volatile Set<String> nextInvalidated;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || !Files.exists(path)) {
+            return;
+        }
+
+        // A file left by the previous run of this pod makes the restart warm right away
+        try {
+            Snapshot previous = open(path);
+
+            // Changes made since it was written are replayed from the invalidation log, which keeps only so much
+            if (System.currentTimeMillis() - previous.buffer().getLong(16) > retention * 1000) {
+                log.info("Ignoring redirect snapshot {}, older than the invalidation log", path);
+                return;
+            }
+
+            snapshot = previous;
+            log.info("Redirect snapshot {} opened", path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring redirect snapshot {}", path, e);
+        }
+    }
+
+    // Position of the invalidation log the snapshot opened at startup is up to date with, -1 without one.
+    // CacheInvalidationFeed starts reading from there so the changes since are applied to it
+    public long startupFeedPosition() {
+        Snapshot current = snapshot;
+
+        return null == current ? -1 : current.feedPosition();
+    }
+
+    // null means "not known here", never "does not exist": the url may be newer than the snapshot
+    public RedirectEntry find(String hash) {
+        Snapshot current = snapshot;
+
+        if (null == current || current.invalidated().contains(hash)) {
+            return null;
+        }
+
+        long key = key(hash);
+
+        if (key < 0) {
+            return null;
+        }
+
+        MappedByteBuffer buffer = current.buffer();
+        int index = slotIndex(key, current.slotCount());
+
+        for (int probes = 0; probes < current.slotCount(); probes++) {
+            int slot = HEADER_SIZE + index * SLOT_SIZE;
+            long slotKey = buffer.getLong(slot);
+
+            if (slotKey == 0) {
+                return null;
+            }
+
+            if (slotKey == key) {
+                return readRecord(buffer, buffer.getInt(slot + 8));
+            }
+
+            index = index + 1 == current.slotCount() ? 0 : index + 1;
+        }
+
+        return null;
+    }
+
+    public void invalidate(Collection<String> hashes) {
+        // Read nextInvalidated first: once it is cleared, snapshot already carries it
+        Set<String> next = nextInvalidated;
+        Snapshot current = snapshot;
+
+        if (null != next) {
+            next.addAll(hashes);
+        }
+
+        if (null != current) {
+            current.invalidated().addAll(hashes);
+        }
+    }
+
+    // Stops serving from the snapshot until the next rebuild, for when changes it should have dropped were missed
+    public void discard() {
+        snapshot = null;
+    }
+
+    // Written to a temporary file and moved over the old one, readers keep their mapping until the swap
+    @Scheduled(fixedDelayString = "${redirect.snapshot.rebuild-interval}", timeUnit = TimeUnit.SECONDS)
+    public void rebuild() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+
+        Set<String> invalidated = ConcurrentHashMap.newKeySet();
+        nextInvalidated = invalidated;
+
+        try {
+            // Taken after nextInvalidated is in place, so every later change is either replayed or tracked
+            long feedPosition = cacheInvalidationRepository.findMaxId();
+
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            int entries = write(temporary, feedPosition);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Snapshot next = open(path);
+            snapshot = new Snapshot(next.buffer(), next.slotCount(), next.feedPosition(), invalidated);
+
+            log.info(
+                    "Redirect snapshot written with {} urls, {} bytes in {} ms",
+                    entries,
+                    next.buffer().capacity(),
+                    System.currentTimeMillis() - startedAt);
+        } finally {
+            nextInvalidated = null;
+        }
+    }
+
+    private int write(Path file, long feedPosition) throws IOException {
+        Date now = Date.from(Instant.now());
+
+        // Load factor at most 0.6 at build time, rows created during the scan use the headroom
+        long expected = urlRepository.countByDeletedIsFalseAndExpiresAtAfter(now);
+        int slotCount = (int) Math.min(Math.max(1024, expected * 5 / 3), (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE);
+        int maxEntries = (int) (slotCount * 0.9);
+
+        long dataStart = HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+        int entries = 0;
+
+        try (FileChannel channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0, dataStart);
+            ByteBuffer records = ByteBuffer.allocate(1 << 20);
+            long written = dataStart;
+
+            int lastId = 0;
+            List<Object[]> rows;
+            do {
+                rows = urlRepository.findLiveRedirectRowsAfterId(lastId, now, PageRequest.of(0, pageSize));
+
+                for (Object[] row : rows) {
+                    lastId = (Integer) row[1];
+
+                    long key = key((String) row[0]);
+                    if (key < 0 || entries == maxEntries) {
+                        continue;
+                    }
+
+                    RedirectEntry redirectEntry = RedirectEntry.fromRow(row);
+                    byte[] longUrl = redirectEntry.longUrl().getBytes(StandardCharsets.UTF_8);
+
+                    if (records.remaining() < RECORD_HEADER_SIZE + longUrl.length) {
+                        written += flush(channel, records, written);
+                    }
+
+                    long offset = written + records.position();
+                    if (offset + RECORD_HEADER_SIZE + longUrl.length > Integer.MAX_VALUE) {
+                        throw new IllegalStateException("Redirect snapshot would exceed 2 GB");
+                    }
+
+                    records.putInt(redirectEntry.id())
+                            .putLong(redirectEntry.expiresAt().getTime())
+                            .putLong(
+                                    null == redirectEntry.campaignEndDate()
+                                            ? NO_DATE
+                                            : redirectEntry.campaignEndDate().getTime())
+                            .put((byte)
+                                    (null == redirectEntry.redirectType()
+                                            ? -1
+                                            : redirectEntry.redirectType().ordinal()))
+                            .putInt(longUrl.length)
+                            .put(longUrl);
+
+                    insert(table, slotCount, key, (int) offset);
+                    entries++;
+                }
+            } while (rows.size() == pageSize);
+
+            flush(channel, records, written);
+
+            table.putInt(0, MAGIC)
+                    .putInt(4, VERSION)
+                    .putInt(8, slotCount)
+                    .putInt(12, entries)
+                    .putLong(16, now.getTime())
+                    .putLong(24, feedPosition);
+            table.force();
+        }
+
+        return entries;
+    }
+
+    private Snapshot open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a redirect snapshot: " + file);
+        }
+
+        return new Snapshot(buffer, buffer.getInt(8), buffer.getLong(24), ConcurrentHashMap.newKeySet());
+    }
+
+    private int flush(FileChannel channel, ByteBuffer records, long position) throws IOException {
+        records.flip();
+
+        int size = records.remaining();
+        while (records.hasRemaining()) {
+            channel.write(records, position + size - records.remaining());
+        }
+
+        records.clear();
+        return size;
+    }
+
+    private void insert(MappedByteBuffer table, int slotCount, long key, int offset) {
+        int index = slotIndex(key, slotCount);
+
+        while (table.getLong(HEADER_SIZE + index * SLOT_SIZE) != 0) {
+            index = index + 1 == slotCount ? 0 : index + 1;
+        }
+
+        table.putLong(HEADER_SIZE + index * SLOT_SIZE, key);
+        table.putInt(HEADER_SIZE + index * SLOT_SIZE + 8, offset);
+    }
+
+    private RedirectEntry readRecord(MappedByteBuffer buffer, int offset) {
+        long campaignEndDate = buffer.getLong(offset + 12);
+        byte redirectType = buffer.get(offset + 20);
+
+        byte[] longUrl = new byte[buffer.getInt(offset + 21)];
+        buffer.get(offset + RECORD_HEADER_SIZE, longUrl);
+
+        return new RedirectEntry(
+                buffer.getInt(offset),
+                new String(longUrl, StandardCharsets.UTF_8),
+                new Date(buffer.getLong(offset + 4)),
+                false,
+                redirectType < 0 ? null : REDIRECT_TYPES[redirectType],
+                campaignEndDate == NO_DATE ? null : new Date(campaignEndDate));
+    }
+
+    // 62^10 < 2^60, so the length fits above the value and "0a" and "a" stay distinct. Never 0, the empty slot
+    private long key(String hash) {
+        if (hash.isEmpty() || hash.length() > MAX_HASH_LENGTH) {
+            return -1;
+        }
+
+        long value = base62Encoder.decode(hash);
+
+        return value < 0 ? -1 : ((long) hash.length() << 60) | value;
+    }
+
+    private int slotIndex(long key, int slotCount) {
+        // murmur3 finalizer, sequential hashes would otherwise cluster
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+
+        return (int) Long.remainderUnsigned(key, slotCount);
+    }
+}
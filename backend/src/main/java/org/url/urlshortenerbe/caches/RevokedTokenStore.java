@@ -0,0 +1,107 @@
+package org.url.urlshortenerbe.caches;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.url.urlshortenerbe.entities.RevokedToken;
+import org.url.urlshortenerbe.repositories.RevokedTokenRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Ids of the revoked tokens that could still be presented, held in memory so authenticating a request needs no
+// query. Loaded on startup, revocations made on other pods are polled from revoked_token
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RevokedTokenStore {
+    // seconds read back on every poll, covers rows committed late and clocks that differ between pods
+    @Value("${jwt.revocation.poll-overlap}")
+    private long pollOverlap;
+
+    // seconds
+    @Value("${jwt.expiration-time}")
+    private long expirationTime;
+
+    // seconds
+    @Value("${jwt.refresh-time}")
+    private long refreshTime;
+
+    @Value("${jwt.revocation.purge-batch-size}")
+    private int purgeBatchSize;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    // jti to the time the revocation stops mattering
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private long lastPolledAt;
+
+    @PostConstruct
+    public void init() {
+        lastPolledAt = System.currentTimeMillis();
+
+        // Before the refresh deadline was stored, a row was kept until exp and the token could be refreshed again
+        // once it was purged. The deadline is iat + refresh-time and exp was iat + expiration-time
+        int extended = revokedTokenRepository.extendLegacyExpiryDates(
+                Math.max(0, refreshTime - expirationTime), new Date(lastPolledAt));
+        if (extended > 0) {
+            log.info("Extended {} revoked tokens to their refresh deadline", extended);
+        }
+
+        revokedTokenRepository.findAllByExpiryDateAfter(new Date(lastPolledAt)).forEach(this::add);
+
+        log.info("Loaded {} revoked tokens", revoked.size());
+    }
+
+    public boolean contains(String jwtId) {
+        return null != jwtId && revoked.containsKey(jwtId);
+    }
+
+    // Call after the row is saved, the other pods see it on their next poll
+    public void add(String jwtId, Date expiryDate) {
+        revoked.put(jwtId, expiryDate.getTime());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.poll-interval}", timeUnit = TimeUnit.MILLISECONDS)
+    public void poll() {
+        long now = System.currentTimeMillis();
+
+        // Rows seen on the previous poll come back, adding them again is harmless
+        revokedTokenRepository
+                .findAllByRevokedAtAfter(new Date(lastPolledAt - pollOverlap * 1000))
+                .forEach(this::add);
+
+        lastPolledAt = now;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval}", timeUnit = TimeUnit.SECONDS)
+    public void purge() {
+        Date now = Date.from(Instant.now());
+
+        revoked.values().removeIf(expiryDate -> expiryDate < now.getTime());
+
+        long total = 0;
+        int deleted;
+        do {
+            deleted = revokedTokenRepository.deleteChunkExpiredBefore(now, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+
+        if (total > 0) {
+            log.info("Purged {} expired revoked tokens", total);
+        }
+    }
+
+    private void add(RevokedToken revokedToken) {
+        add(revokedToken.getId(), revokedToken.getExpiryDate());
+    }
+}
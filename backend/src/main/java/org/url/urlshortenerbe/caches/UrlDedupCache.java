@@ -0,0 +1,101 @@
+package org.url.urlshortenerbe.caches;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.url.urlshortenerbe.entities.RedirectType;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Owner and long url digest to the live url already shortening it, so a destination shortened over and over
+// does not look up the digest index every time. Kept in line with the database through the invalidation feed
+@Component
+public class UrlDedupCache {
+    @Value("${url.dedup.cache-size}")
+    private long size;
+
+    // seconds
+    @Value("${url.dedup.cache-ttl}")
+    private long ttl;
+
+    public record Entry(String hash, String longUrl, Date createdAt, Date expiresAt, RedirectType redirectType) {}
+
+    private Cache<String, Entry> cache;
+
+    // Invalidations only know the hash
+    private final Map<String, String> keysByHash = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation, lets put drop an entry read before one
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(Duration.ofSeconds(ttl))
+                // On the calling thread, so the reverse entry is gone before anyone can put the key again
+                .executor(Runnable::run)
+                .<String, Entry>removalListener((key, entry, cause) -> {
+                    if (null != key && null != entry) {
+                        keysByHash.remove(entry.hash(), key);
+                    }
+                })
+                .build();
+    }
+
+    // null userId for guest links
+    public static String key(String userId, RedirectType redirectType, byte[] digest) {
+        return (null == userId ? "" : userId)
+                + ':'
+                + redirectType
+                + ':'
+                + HexFormat.of().formatHex(digest);
+    }
+
+    public Entry get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    // Pass invalidationCount() taken before the entry was read, the same guard as RedirectCache.putAll
+    public void put(String key, Entry entry, long seen) {
+        cache.put(key, entry);
+        keysByHash.put(entry.hash(), key);
+
+        // The url may have been deleted or changed after it was read, drop it rather than hand it out
+        if (invalidations.get() != seen) {
+            cache.invalidate(key);
+        }
+    }
+
+    public long invalidationCount() {
+        return invalidations.get();
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+
+        cache.invalidateAll();
+    }
+
+    public void invalidateAll(Collection<String> hashes) {
+        invalidations.incrementAndGet();
+
+        for (String hash : hashes) {
+            String key = keysByHash.remove(hash);
+
+            if (null != key) {
+                cache.invalidate(key);
+            }
+        }
+    }
+}
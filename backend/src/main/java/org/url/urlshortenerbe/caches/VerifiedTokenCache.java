@@ -0,0 +1,82 @@
+package org.url.urlshortenerbe.caches;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+// Bearer tokens that already passed signature and expiry checks, so a client sending the same token on every
+// request pays for verification once. Keyed by a digest of the token, an entry never outlives the token
+@Component
+public class VerifiedTokenCache {
+    @Value("${jwt.verified-cache.size}")
+    private long size;
+
+    private Cache<String, Jwt> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                        return timeToLive(jwt).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return timeToLive(jwt).toNanos();
+                    }
+
+                    // Reads never extend an entry
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public Jwt get(String token) {
+        return cache.getIfPresent(key(token));
+    }
+
+    public void put(String token, Jwt jwt) {
+        cache.put(key(token), jwt);
+    }
+
+    // Called on revocation, RevokedTokenStore rejects the token anyway, this only frees the entry
+    public void invalidate(String token) {
+        cache.invalidate(key(token));
+    }
+
+    private Duration timeToLive(Jwt jwt) {
+        Duration timeToLive =
+                null == jwt.getExpiresAt() ? Duration.ZERO : Duration.between(Instant.now(), jwt.getExpiresAt());
+
+        return timeToLive.isNegative() ? Duration.ZERO : timeToLive;
+    }
+
+    // Tokens are a few hundred characters, the digest keeps the keys small
+    private String key(String token) {
+        try {
+            return HexFormat.of()
+                    .formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,23 +1,22 @@
 package org.url.urlshortenerbe.configs;
 
-import java.text.ParseException;
+import java.time.Duration;
 import javax.crypto.spec.SecretKeySpec;
 
 import jakarta.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.stereotype.Component;
-import org.url.urlshortenerbe.exceptions.AppException;
-import org.url.urlshortenerbe.exceptions.ErrorCode;
+import org.url.urlshortenerbe.caches.VerifiedTokenCache;
 import org.url.urlshortenerbe.utils.JwtUtil;
 
-import com.nimbusds.jose.JOSEException;
-
 import lombok.RequiredArgsConstructor;
 
 @Component
@@ -28,6 +27,8 @@ public class CustomJwtDecoder implements JwtDecoder {
 
     private final JwtUtil jwtUtil;
 
+    private final VerifiedTokenCache verifiedTokenCache;
+
     private NimbusJwtDecoder nimbusJwtDecoder;
 
     @PostConstruct
@@ -36,19 +37,26 @@ public class CustomJwtDecoder implements JwtDecoder {
         this.nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(secretKeySpec)
                 .macAlgorithm(MacAlgorithm.HS512)
                 .build();
+
+        // No clock skew, a token is rejected the moment it expires like JwtUtil does
+        this.nimbusJwtDecoder.setJwtValidator(new JwtTimestampValidator(Duration.ZERO));
     }
 
     @Override
     public Jwt decode(String token) throws JwtException {
-        try {
-            boolean isTokenValid = jwtUtil.isTokenRefreshable(token);
-            if (!isTokenValid) {
-                throw new AppException(ErrorCode.UNAUTHORIZED);
-            }
-        } catch (ParseException | JOSEException e) {
-            throw new JwtException("Token introspection failed", e);
+        Jwt jwt = verifiedTokenCache.get(token);
+
+        // Parses, checks the signature and the expiry once per token
+        if (null == jwt) {
+            jwt = nimbusJwtDecoder.decode(token);
+            verifiedTokenCache.put(token, jwt);
+        }
+
+        // In memory, and also catches tokens revoked on other pods after they were cached here
+        if (jwtUtil.isRevoked(jwt.getId())) {
+            throw new BadJwtException("Token revoked");
         }
 
-        return nimbusJwtDecoder.decode(token);
+        return jwt;
     }
 }
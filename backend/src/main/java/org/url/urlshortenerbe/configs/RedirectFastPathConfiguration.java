@@ -0,0 +1,30 @@
+package org.url.urlshortenerbe.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.url.urlshortenerbe.services.RedirectionService;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Configuration
+@ConditionalOnProperty(name = "redirect.fast-path.enabled", havingValue = "true")
+public class RedirectFastPathConfiguration {
+    @Bean
+    public FilterRegistrationBean<RedirectFastPathFilter> redirectFastPathFilter(
+            RedirectionService redirectionService, ObjectMapper objectMapper, @Value("${api.prefix}") String apiPrefix)
+            throws JsonProcessingException {
+        FilterRegistrationBean<RedirectFastPathFilter> registrationBean =
+                new FilterRegistrationBean<>(new RedirectFastPathFilter(redirectionService, objectMapper, apiPrefix));
+
+        // Ahead of the Spring Security filter chain, which is registered at order -100
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registrationBean.addUrlPatterns("/*");
+
+        return registrationBean;
+    }
+}
@@ -0,0 +1,171 @@
+package org.url.urlshortenerbe.configs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.url.urlshortenerbe.dtos.responses.ErrorResponse;
+import org.url.urlshortenerbe.dtos.responses.Response;
+import org.url.urlshortenerbe.exceptions.AppException;
+import org.url.urlshortenerbe.exceptions.ErrorCode;
+import org.url.urlshortenerbe.services.RedirectionService;
+import org.url.urlshortenerbe.services.RedirectionService.Redirect;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Answers GET /{hash} before the security chain and the DispatcherServlet, same result as RedirectionController
+@Slf4j
+public class RedirectFastPathFilter implements Filter {
+    private static final String DEFAULT_REFERER = "Others";
+
+    private final RedirectionService redirectionService;
+    private final ObjectMapper objectMapper;
+
+    // Single segment paths that belong to the API or to Spring and must never be read as a hash
+    private final String[] reservedPaths;
+
+    private final Map<ErrorCode, byte[]> errorBodies = new EnumMap<>(ErrorCode.class);
+
+    public RedirectFastPathFilter(RedirectionService redirectionService, ObjectMapper objectMapper, String apiPrefix)
+            throws JsonProcessingException {
+        this.redirectionService = redirectionService;
+        this.objectMapper = objectMapper;
+
+        // The whole prefix, "/api/v1" reserves "/api/v1" and not "/api" or "/apiv1"
+        String prefix = apiPrefix.endsWith("/") ? apiPrefix.substring(0, apiPrefix.length() - 1) : apiPrefix;
+        this.reservedPaths = new String[] {prefix.startsWith("/") ? prefix : "/" + prefix, "/actuator", "/error"};
+
+        // Error bodies never change, serialize them once
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            ErrorResponse errorResponse = ErrorResponse.builder()
+                    .code(errorCode.getCode())
+                    .message(errorCode.getMessage())
+                    .build();
+
+            errorBodies.put(
+                    errorCode,
+                    objectMapper.writeValueAsBytes(Response.<Void>builder()
+                            .success(false)
+                            .error(errorResponse)
+                            .build()));
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+        String hash = "GET".equals(request.getMethod()) ? extractHash(request.getRequestURI()) : null;
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+
+        // Anything else, including a redirect without User-Agent, goes through the regular stack and its error handling
+        if (null == hash || null == userAgent) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String referer = request.getHeader(HttpHeaders.REFERER);
+        if (null == referer) {
+            String refererParam = request.getParameter("r");
+            referer = null == refererParam ? DEFAULT_REFERER : refererParam;
+        }
+
+        Redirect redirect;
+        try {
+            redirect = redirectionService.getUrlAndCountClick(hash, referer, userAgent);
+        } catch (AppException e) {
+            writeError(response, e.getErrorCode());
+            return;
+        } catch (RuntimeException e) {
+            // A database or cache failure, answered here since GlobalExceptionHandler never sees this filter
+            writeUncategorizedError(response, e);
+            return;
+        }
+
+        // Through URI like the controller's ResponseEntity.location, which escapes what is not ASCII and rejects
+        // what is not a URI
+        URI location;
+        try {
+            location = URI.create(redirect.location());
+        } catch (IllegalArgumentException e) {
+            writeUncategorizedError(response, e);
+            return;
+        }
+
+        response.setStatus(redirect.status().value());
+        response.setHeader(HttpHeaders.LOCATION, location.toASCIIString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, redirect.cacheControl());
+        response.setContentLength(0);
+    }
+
+    // Returns the hash for a single segment path made of url-safe characters, null otherwise
+    private String extractHash(String path) {
+        int length = path.length();
+
+        if (length < 2 || path.charAt(0) != '/') {
+            return null;
+        }
+
+        for (int i = 1; i < length; i++) {
+            char c = path.charAt(i);
+
+            boolean allowed =
+                    (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '-' || c == '_';
+
+            if (!allowed) {
+                return null;
+            }
+        }
+
+        for (String reservedPath : reservedPaths) {
+            if (reservedPath.equals(path)) {
+                return null;
+            }
+        }
+
+        return path.substring(1);
+    }
+
+    private void writeError(HttpServletResponse response, ErrorCode errorCode) throws IOException {
+        byte[] body = errorBodies.get(errorCode);
+
+        response.setStatus(errorCode.getHttpStatus().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // What GlobalExceptionHandler answers for an exception that is not an AppException
+    private void writeUncategorizedError(HttpServletResponse response, Exception e) throws IOException {
+        log.error("Exception: {}", e.toString());
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .code(ErrorCode.UNCATEGORIZED_EXCEPTION.getCode())
+                .message(e.getMessage())
+                .build();
+
+        byte[] body = objectMapper.writeValueAsBytes(
+                Response.<Void>builder().success(false).error(errorResponse).build());
+
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
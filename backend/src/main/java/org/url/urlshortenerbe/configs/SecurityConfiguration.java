@@ -42,7 +42,8 @@ public class SecurityConfiguration {
     private final String[] GET_PUBLIC_ENDPOINTS = {
         API_PREFIX + "/auth/me", 
         "/{hash}", 
-        "/actuator/health"
+        "/actuator/health",
+        "/actuator/health/**"
     };
 
     @Bean
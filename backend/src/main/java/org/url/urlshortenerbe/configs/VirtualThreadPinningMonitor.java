@@ -0,0 +1,79 @@
+package org.url.urlshortenerbe.configs;
+
+import java.time.Duration;
+import java.util.List;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Reports virtual threads that block while pinned to their carrier (inside synchronized or native frames)
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    @Value("${virtual-threads.pinning.threshold}")
+    private long threshold;
+
+    private final MeterRegistry meterRegistry;
+
+    private RecordingStream recordingStream;
+
+    @PostConstruct
+    public void start() {
+        Counter pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads that stayed pinned longer than the threshold")
+                .register(meterRegistry);
+
+        recordingStream = new RecordingStream();
+        recordingStream
+                .enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(threshold))
+                .withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, event -> {
+            pinnedCounter.increment();
+            log.warn(
+                    "Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), topFrames(event));
+        });
+        recordingStream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        recordingStream.close();
+    }
+
+    private String topFrames(RecordedEvent event) {
+        if (null == event.getStackTrace()) {
+            return "unknown";
+        }
+
+        List<RecordedFrame> recordedFrames = event.getStackTrace().getFrames();
+
+        StringBuilder frames = new StringBuilder();
+        for (RecordedFrame frame : recordedFrames.subList(0, Math.min(8, recordedFrames.size()))) {
+            frames.append("\n\tat ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber());
+        }
+
+        return frames.toString();
+    }
+}
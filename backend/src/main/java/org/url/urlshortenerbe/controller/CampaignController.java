@@ -25,10 +25,12 @@ public class CampaignController {
     public Response<PageResponse<CampaignResponse>> getAll(
             @RequestParam(defaultValue = "1", required = false) int page,
             @RequestParam(defaultValue = "10", required = false) int size,
-            @RequestParam(defaultValue = "not_deleted", required = false) String type) {
+            @RequestParam(defaultValue = "not_deleted", required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false", required = false) boolean count) {
         return Response.<PageResponse<CampaignResponse>>builder()
                 .success(true)
-                .data(campaignService.getAll(page, size, type))
+                .data(campaignService.getAll(page, size, type, cursor, count))
                 .build();
     }
 
@@ -4,10 +4,10 @@ import java.net.URI;
 import java.util.Optional;
 
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.url.urlshortenerbe.services.RedirectionService;
+import org.url.urlshortenerbe.services.RedirectionService.Redirect;
 import org.url.urlshortenerbe.services.UrlService;
 
 import lombok.RequiredArgsConstructor;
@@ -25,10 +25,11 @@ public class RedirectionController {
             @RequestHeader(HttpHeaders.USER_AGENT) String userAgent,
             @RequestParam(defaultValue = "Others", required = false, value = "r") String refererHeader) {
 
-        String longUrl = redirectionService.getUrlAndCountClick(hash, referer.orElse(refererHeader), userAgent);
+        Redirect redirect = redirectionService.getUrlAndCountClick(hash, referer.orElse(refererHeader), userAgent);
 
-        return ResponseEntity.status(HttpStatus.MOVED_PERMANENTLY)
-                .location(URI.create(longUrl))
+        return ResponseEntity.status(redirect.status())
+                .location(URI.create(redirect.location()))
+                .header(HttpHeaders.CACHE_CONTROL, redirect.cacheControl())
                 .build();
     }
 }
@@ -39,10 +39,12 @@ public class UrlController {
     public Response<PageResponse<UrlResponse>> getAll(
             @RequestParam(defaultValue = "1", required = false) int page,
             @RequestParam(defaultValue = "10", required = false) int size,
-            @RequestParam(defaultValue = "not_deleted", required = false) String type) {
+            @RequestParam(defaultValue = "not_deleted", required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false", required = false) boolean count) {
         return Response.<PageResponse<UrlResponse>>builder()
                 .success(true)
-                .data(urlService.getAll(page, size, type))
+                .data(urlService.getAll(page, size, type, cursor, count))
                 .build();
     }
 
@@ -36,10 +36,12 @@ public class UserCampaignController {
             @PathVariable String userId,
             @RequestParam(defaultValue = "1", required = false) int page,
             @RequestParam(defaultValue = "10", required = false) int size,
-            @RequestParam(defaultValue = "not_deleted", required = false) String type) {
+            @RequestParam(defaultValue = "not_deleted", required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false", required = false) boolean count) {
         return Response.<PageResponse<CampaignResponse>>builder()
                 .success(true)
-                .data(campaignService.getAllByUserId(userId, page, size, type))
+                .data(campaignService.getAllByUserId(userId, page, size, type, cursor, count))
                 .build();
     }
 
@@ -1,19 +1,29 @@
 package org.url.urlshortenerbe.controller;
 
 import java.security.NoSuchAlgorithmException;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
 import jakarta.validation.Valid;
 
-import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.url.urlshortenerbe.dtos.requests.UrlCreationRequest;
 import org.url.urlshortenerbe.dtos.requests.UrlUpdateRequest;
+import org.url.urlshortenerbe.dtos.responses.BulkUrlCreationResponse;
+import org.url.urlshortenerbe.dtos.responses.CampaignStatsResponse;
 import org.url.urlshortenerbe.dtos.responses.ClickResponse;
+import org.url.urlshortenerbe.dtos.responses.ClickStatsResponse;
 import org.url.urlshortenerbe.dtos.responses.PageResponse;
 import org.url.urlshortenerbe.dtos.responses.Response;
 import org.url.urlshortenerbe.dtos.responses.UrlResponse;
+import org.url.urlshortenerbe.entities.RollupGranularity;
+import org.url.urlshortenerbe.services.ClickExportService;
 import org.url.urlshortenerbe.services.UrlService;
 
 import lombok.RequiredArgsConstructor;
@@ -36,16 +46,29 @@ public class UserCampaignUrlController {
                 .build();
     }
 
+    @PostMapping("/bulk")
+    public Response<BulkUrlCreationResponse> createUrlsWithCampaignIdAndUserId(
+            @PathVariable String userId,
+            @PathVariable String campaignId,
+            @RequestBody List<UrlCreationRequest> urlCreationRequests) {
+        return Response.<BulkUrlCreationResponse>builder()
+                .success(true)
+                .data(urlService.createBulkWithCampaignIdAndUserId(campaignId, userId, urlCreationRequests))
+                .build();
+    }
+
     @GetMapping
     public Response<PageResponse<UrlResponse>> getAllByCampaignIdAndUserId(
             @PathVariable String userId,
             @PathVariable String campaignId,
             @RequestParam(defaultValue = "1", required = false) int page,
             @RequestParam(defaultValue = "10", required = false) int size,
-            @RequestParam(defaultValue = "not_deleted", required = false) String type) {
+            @RequestParam(defaultValue = "not_deleted", required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false", required = false) boolean count) {
         return Response.<PageResponse<UrlResponse>>builder()
                 .success(true)
-                .data(urlService.getAllByCampaignIdAndUserId(campaignId, userId, page, size, type))
+                .data(urlService.getAllByCampaignIdAndUserId(campaignId, userId, page, size, type, cursor, count))
                 .build();
     }
 
@@ -70,11 +93,30 @@ public class UserCampaignUrlController {
     }
 
     @GetMapping("/stats")
-    public Response<Map<Object, Object>> getMostClickedUrlsByCampaign(
-            @PathVariable String userId, @PathVariable String campaignId) {
-        return Response.<Map<Object, Object>>builder()
+    public Response<CampaignStatsResponse> getMostClickedUrlsByCampaign(
+            @PathVariable String userId,
+            @PathVariable String campaignId,
+            @RequestParam(defaultValue = "0", required = false) int offset,
+            @RequestParam(defaultValue = "10", required = false) int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        return Response.<CampaignStatsResponse>builder()
+                .success(true)
+                .data(urlService.getMostClickedUrlsByCampaign(userId, campaignId, offset, limit, from, to))
+                .build();
+    }
+
+    @GetMapping("/{hash}/stats")
+    public Response<ClickStatsResponse> getClickStats(
+            @PathVariable String userId,
+            @PathVariable String campaignId,
+            @PathVariable String hash,
+            @RequestParam(defaultValue = "DAY", required = false) RollupGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        return Response.<ClickStatsResponse>builder()
                 .success(true)
-                .data(urlService.getMostClickedUrlsByCampaign(userId, campaignId))
+                .data(urlService.getClickStats(userId, campaignId, hash, granularity, from, to))
                 .build();
     }
 
@@ -84,13 +126,41 @@ public class UserCampaignUrlController {
             @PathVariable String campaignId,
             @PathVariable String hash,
             @RequestParam(defaultValue = "1", required = false) int page,
-            @RequestParam(defaultValue = "10", required = false) int size) {
+            @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false", required = false) boolean count) {
         return Response.<PageResponse<ClickResponse>>builder()
                 .success(true)
-                .data(urlService.getClicks(userId, campaignId, hash, PageRequest.of(page - 1, size)))
+                .data(urlService.getClicks(userId, campaignId, hash, page, size, cursor, count))
                 .build();
     }
 
+    // Every click of the url in one response, for downloads too large to page through
+    @GetMapping("/{hash}/clicks/export")
+    public ResponseEntity<StreamingResponseBody> exportClicksOfUrl(
+            @PathVariable String userId,
+            @PathVariable String campaignId,
+            @PathVariable String hash,
+            @RequestParam(defaultValue = "NDJSON", required = false) ClickExportService.Format format,
+            @RequestParam(defaultValue = "false", required = false) boolean gzip) {
+        StreamingResponseBody body = urlService.exportClicks(userId, campaignId, hash, format, gzip);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment()
+                                .filename(hash + "-clicks." + format.getExtension())
+                                .build()
+                                .toString());
+
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return response.body(body);
+    }
+
     @PutMapping("/{hash}")
     public Response<UrlResponse> updateOneByIdAndCampaignIdAndUserId(
             @PathVariable("userId") String userId,
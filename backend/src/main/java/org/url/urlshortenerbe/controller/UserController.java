@@ -31,10 +31,12 @@ public class UserController {
             @RequestParam(defaultValue = "1", required = false) int page,
             @RequestParam(defaultValue = "10", required = false) int size,
             @RequestParam(defaultValue = "false", required = false) boolean compact,
-            @RequestParam(defaultValue = "not_deleted", required = false) String type) {
+            @RequestParam(defaultValue = "not_deleted", required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false", required = false) boolean count) {
         return Response.<PageResponse<UserResponse>>builder()
                 .success(true)
-                .data(userService.getAll(page, size, compact, type))
+                .data(userService.getAll(page, size, compact, type, cursor, count))
                 .build();
     }
 
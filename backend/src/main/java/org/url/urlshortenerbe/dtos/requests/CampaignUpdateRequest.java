@@ -6,6 +6,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
+import org.url.urlshortenerbe.entities.RedirectType;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,4 +26,6 @@ public class CampaignUpdateRequest {
     private Date endDate;
 
     private String description;
+
+    private RedirectType redirectType;
 }
@@ -1,6 +1,9 @@
 package org.url.urlshortenerbe.dtos.requests;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import org.url.urlshortenerbe.entities.RedirectType;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -12,8 +15,13 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class UrlCreationRequest {
+    public static final int MAX_LONG_URL_LENGTH = 8192;
+
     @NotBlank(message = "Url is required to shorten")
+    @Size(max = MAX_LONG_URL_LENGTH, message = "URL_TOO_LONG")
     private String longUrl;
 
     private String alias;
+
+    private RedirectType redirectType;
 }
@@ -2,6 +2,8 @@ package org.url.urlshortenerbe.dtos.requests;
 
 import jakarta.validation.constraints.NotBlank;
 
+import org.url.urlshortenerbe.entities.RedirectType;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,4 +16,6 @@ import lombok.NoArgsConstructor;
 public class UrlUpdateRequest {
     @NotBlank(message = "Alias is required")
     private String alias;
+
+    private RedirectType redirectType;
 }
@@ -23,6 +23,9 @@ public class UserUpdateRequest {
     @NotBlank(message = "Last name cannot be blank")
     private String lastName;
 
+    // Null keeps the stored choice, the user forms do not send it
+    private Boolean dedupUrls;
+
     @NotEmpty(message = "Roles are required")
     private List<@Size(min = 4, max = 50, message = "Role name length must be between 4 and 50") String> roles;
 }
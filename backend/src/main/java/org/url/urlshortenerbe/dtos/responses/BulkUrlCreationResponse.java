@@ -0,0 +1,35 @@
+package org.url.urlshortenerbe.dtos.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkUrlCreationResponse {
+    private int created;
+
+    private int failed;
+
+    // One per request item, in the same order
+    private List<Result> results;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Result {
+        private int index;
+
+        private UrlResponse url;
+
+        private ErrorResponse error;
+    }
+}
@@ -2,6 +2,8 @@ package org.url.urlshortenerbe.dtos.responses;
 
 import java.util.Date;
 
+import org.url.urlshortenerbe.entities.RedirectType;
+
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import lombok.AllArgsConstructor;
@@ -27,5 +29,7 @@ public class CampaignResponse {
 
     private String userId;
 
+    private RedirectType redirectType;
+
     private Boolean deleted;
 }
@@ -0,0 +1,43 @@
+package org.url.urlshortenerbe.dtos.responses;
+
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CampaignStatsResponse {
+    private long totalClickCount;
+
+    private long totalShortenedLinks;
+
+    // Only set for a windowed request
+    private Date from;
+
+    private Date to;
+
+    private int offset;
+
+    private int limit;
+
+    // Most clicked first
+    private List<UrlClicks> urls;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class UrlClicks {
+        private UrlResponse url;
+
+        private long clickCount;
+    }
+}
@@ -0,0 +1,48 @@
+package org.url.urlshortenerbe.dtos.responses;
+
+import java.util.Date;
+import java.util.List;
+
+import org.url.urlshortenerbe.entities.RollupGranularity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClickStatsResponse {
+    private RollupGranularity granularity;
+
+    private Date from;
+
+    private Date to;
+
+    private long totalClicks;
+
+    // Buckets without clicks are left out
+    private List<Bucket> buckets;
+
+    private List<PlatformClicks> platforms;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Bucket {
+        private Date start;
+
+        private long clicks;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PlatformClicks {
+        private String platform;
+
+        private long clicks;
+    }
+}
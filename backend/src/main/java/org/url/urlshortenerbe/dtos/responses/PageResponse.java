@@ -2,16 +2,24 @@ package org.url.urlshortenerbe.dtos.responses;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
+// Either a numbered page, or with a cursor a page that follows the previous one, whose records are only set when
+// a count was asked for
 @Getter
 @Setter
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PageResponse<T> {
     private Long records;
     private List<T> items;
-    private int page;
-    private int totalPages;
+    private Integer page;
+    private Integer totalPages;
+
+    // Pass back as cursor for the next page, absent on the last one
+    private String nextCursor;
 }
@@ -2,6 +2,8 @@ package org.url.urlshortenerbe.dtos.responses;
 
 import java.util.Date;
 
+import org.url.urlshortenerbe.entities.RedirectType;
+
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import lombok.AllArgsConstructor;
@@ -29,5 +31,7 @@ public class UrlResponse {
 
     private Boolean deleted;
 
-    private Integer clickCount;
+    private RedirectType redirectType;
+
+    private Long clickCount;
 }
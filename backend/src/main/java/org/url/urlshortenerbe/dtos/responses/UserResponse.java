@@ -21,5 +21,6 @@ public class UserResponse {
     private String firstName;
     private String lastName;
     private Boolean banned;
+    private Boolean dedupUrls;
     private Set<RoleResponse> roles;
 }
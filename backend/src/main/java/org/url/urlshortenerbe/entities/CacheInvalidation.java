@@ -0,0 +1,27 @@
+package org.url.urlshortenerbe.entities;
+
+import java.util.Date;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+
+// One row per hash whose cached state changed, read by every pod to drop its local copy
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(columnList = "createdAt"))
+public class CacheInvalidation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String hash;
+
+    @Column(nullable = false)
+    private Date createdAt;
+}
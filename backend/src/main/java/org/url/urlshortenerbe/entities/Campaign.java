@@ -35,6 +35,10 @@ public class Campaign {
 
     private String description;
 
+    // Null falls back to the configured default
+    @Enumerated(EnumType.STRING)
+    private RedirectType redirectType;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
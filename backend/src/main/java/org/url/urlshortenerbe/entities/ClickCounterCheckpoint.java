@@ -0,0 +1,26 @@
+package org.url.urlshortenerbe.entities;
+
+import java.util.Date;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+
+// Progress of the click counter reconcile, shared by every pod so a pass covers each url range once
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class ClickCounterCheckpoint {
+    @Id
+    private String name;
+
+    // Highest url id recounted in the current pass, 0 between passes
+    @Column(nullable = false)
+    private int lastUrlId;
+
+    // End of the last complete pass
+    private Date reconciledAt;
+}
@@ -0,0 +1,36 @@
+package org.url.urlshortenerbe.entities;
+
+import java.io.Serializable;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+
+// Clicks of a url not yet folded into url.click_count, spread over a few rows so concurrent writers of a viral
+// link do not queue on a single row lock
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(ClickCounterShard.Key.class)
+public class ClickCounterShard {
+    @Id
+    private int urlId;
+
+    @Id
+    private int shard;
+
+    @Column(nullable = false)
+    private long clicks;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private int urlId;
+
+        private int shard;
+    }
+}
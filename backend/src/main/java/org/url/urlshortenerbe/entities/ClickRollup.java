@@ -0,0 +1,51 @@
+package org.url.urlshortenerbe.entities;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+
+// Clicks of a url per minute, hour or day and platform, kept up to date from the click table by
+// ClickRollupService so stats never scan raw clicks
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(ClickRollup.Key.class)
+@Table(indexes = @Index(columnList = "urlId, granularity, bucketStart"))
+public class ClickRollup {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private RollupGranularity granularity;
+
+    @Id
+    private Date bucketStart;
+
+    @Id
+    private int urlId;
+
+    // The click's platform (its referer), empty rather than null since it is part of the key
+    @Id
+    private String platform;
+
+    @Column(nullable = false)
+    private long clicks;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private RollupGranularity granularity;
+
+        private Date bucketStart;
+
+        private int urlId;
+
+        private String platform;
+    }
+}
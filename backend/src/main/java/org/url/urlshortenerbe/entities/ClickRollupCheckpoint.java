@@ -0,0 +1,20 @@
+package org.url.urlshortenerbe.entities;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+
+// Highest click id already folded into the rollups, shared by every pod
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class ClickRollupCheckpoint {
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private long lastClickId;
+}
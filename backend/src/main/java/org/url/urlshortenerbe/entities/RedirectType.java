@@ -0,0 +1,21 @@
+package org.url.urlshortenerbe.entities;
+
+import org.springframework.http.HttpStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum RedirectType {
+    // Cacheable by browsers and shared caches, repeat visits may never reach us
+    MOVED_PERMANENTLY(HttpStatus.MOVED_PERMANENTLY, true),
+    PERMANENT_REDIRECT(HttpStatus.PERMANENT_REDIRECT, true),
+
+    // Every visit comes back to us, so every click is counted
+    FOUND(HttpStatus.FOUND, false),
+    TEMPORARY_REDIRECT(HttpStatus.TEMPORARY_REDIRECT, false);
+
+    private final HttpStatus httpStatus;
+    private final boolean cacheable;
+}
@@ -5,6 +5,8 @@ import java.util.Date;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 import lombok.*;
 
@@ -14,10 +16,15 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = {@Index(columnList = "expiryDate"), @Index(columnList = "revokedAt")})
 public class RevokedToken {
     @Id
     String id;
 
+    // Until the token can no longer be refreshed, which is after it expires
     @Column(nullable = false)
     Date expiryDate;
+
+    // Read by the other pods' RevokedTokenStore, set on the older rows when their expiry is extended at startup
+    Date revokedAt;
 }
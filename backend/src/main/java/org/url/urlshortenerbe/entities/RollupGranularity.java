@@ -0,0 +1,22 @@
+package org.url.urlshortenerbe.entities;
+
+import java.time.temporal.ChronoUnit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES, "%Y-%m-%d %H:%i:00", 60),
+    HOUR(ChronoUnit.HOURS, "%Y-%m-%d %H:00:00", 48),
+    DAY(ChronoUnit.DAYS, "%Y-%m-%d 00:00:00", 30);
+
+    private final ChronoUnit unit;
+
+    // MySQL DATE_FORMAT pattern truncating a timestamp to the start of its bucket
+    private final String bucketFormat;
+
+    // Buckets returned when the caller gives no window
+    private final int defaultBuckets;
+}
@@ -0,0 +1,26 @@
+package org.url.urlshortenerbe.entities;
+
+import java.util.Date;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+
+// Random short code verified unused when it was generated, waiting to be claimed by a pod
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(columnList = "claimedBy"))
+public class ShortCodeKey {
+    @Id
+    private String hash;
+
+    @Column(nullable = false)
+    private Date createdAt;
+
+    // Token of the claim that took it, null while available
+    private String claimedBy;
+}
@@ -0,0 +1,20 @@
+package org.url.urlshortenerbe.entities;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+
+// Next numeric id not yet leased to any pod, see ShortCodeAllocator
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class ShortCodeSequence {
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private long nextValue;
+}
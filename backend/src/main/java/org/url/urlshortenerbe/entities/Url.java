@@ -12,14 +12,21 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = @Index(columnList = "longUrlDigest"))
 public class Url {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
-    @Column(nullable = false)
+    // Not indexed, lookups by destination go through longUrlDigest
+    @Column(nullable = false, columnDefinition = "TEXT")
     private String longUrl;
 
+    // SHA-256 of the normalized long url, see LongUrlDigest. Null on older rows until LongUrlDigestBackfill reaches
+    // them
+    @Column(columnDefinition = "BINARY(32)")
+    private byte[] longUrlDigest;
+
     @Column(nullable = false)
     private Date createdAt;
 
@@ -32,6 +39,15 @@ public class Url {
     @Column(nullable = false)
     private boolean deleted = Boolean.FALSE;
 
+    // Maintained by ClickCounterService, a few seconds behind the click table. Not updatable: Url has no
+    // @DynamicUpdate, so saving an entity loaded earlier would write back a stale count over the flushed increments
+    @Column(nullable = false, updatable = false)
+    private long clickCount;
+
+    // Null inherits the campaign's type, then the configured default
+    @Enumerated(EnumType.STRING)
+    private RedirectType redirectType;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
@@ -32,6 +32,10 @@ public class User {
     @Column(nullable = false)
     private Boolean banned = Boolean.FALSE;
 
+    // Shortening a destination this user already has a live link to returns that link
+    @Column(nullable = false)
+    private boolean dedupUrls;
+
     @ManyToMany(fetch = FetchType.LAZY)
     private Set<Role> roles;
 }
@@ -12,4 +12,14 @@ public class AppException extends RuntimeException {
         super(errorCode.getMessage());
         this.errorCode = errorCode;
     }
+
+    private AppException(ErrorCode errorCode, boolean writableStackTrace) {
+        super(errorCode.getMessage(), null, false, writableStackTrace);
+        this.errorCode = errorCode;
+    }
+
+    // For hot paths where the error is expected (e.g. bots probing random hashes) and a stack trace is pure cost
+    public static AppException withoutStackTrace(ErrorCode errorCode) {
+        return new AppException(errorCode, false);
+    }
 }
@@ -28,8 +28,17 @@ public enum ErrorCode {
     // SERVICE ERROR CODES
     ALIAS_EXISTED(1004, "Alias already existed", HttpStatus.CONFLICT),
     URL_NOTFOUND(1004, "URL not found", HttpStatus.BAD_REQUEST),
+    SHORT_URL_NOTFOUND(1004, "URL not found", HttpStatus.NOT_FOUND),
+    URL_EXPIRED(1004, "URL expired", HttpStatus.GONE),
     ALIAS_INVALID(1004, "Invalid alias", HttpStatus.BAD_REQUEST),
-    CAMPAIGN_NOTFOUND(1004, "Campaign not found", HttpStatus.BAD_REQUEST);
+    CAMPAIGN_NOTFOUND(1004, "Campaign not found", HttpStatus.BAD_REQUEST),
+    STATS_WINDOW_INVALID(1004, "Invalid stats window", HttpStatus.BAD_REQUEST),
+    STATS_LIMIT_INVALID(1004, "Invalid stats limit or offset", HttpStatus.BAD_REQUEST),
+    EXPORT_BUSY(1004, "Too many exports running, try again later", HttpStatus.TOO_MANY_REQUESTS),
+    CURSOR_INVALID(1004, "Invalid cursor", HttpStatus.BAD_REQUEST),
+    URL_REQUIRED(1004, "Url is required to shorten", HttpStatus.BAD_REQUEST),
+    URL_TOO_LONG(1004, "Url is too long to shorten", HttpStatus.BAD_REQUEST),
+    BULK_SIZE_INVALID(1004, "Too many or no urls in a bulk request", HttpStatus.BAD_REQUEST);
 
     private final int code;
     private final String message;
@@ -1,9 +1,11 @@
 package org.url.urlshortenerbe.mappers;
 
+import org.mapstruct.BeanMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import org.mapstruct.MappingTarget;
+import org.mapstruct.NullValuePropertyMappingStrategy;
 import org.url.urlshortenerbe.dtos.requests.UrlCreationRequest;
 import org.url.urlshortenerbe.dtos.requests.UrlUpdateRequest;
 import org.url.urlshortenerbe.dtos.responses.UrlResponse;
@@ -15,7 +17,10 @@ public interface UrlMapper {
 
     @Mapping(target = "userId", source = "user.id")
     @Mapping(target = "campaignId", source = "campaign.id")
+    @Mapping(target = "clickCount", ignore = true)
     UrlResponse toUrlResponse(Url url);
 
+    // An alias-only update leaves the redirect type as it was
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void updateUrl(@MappingTarget Url url, UrlUpdateRequest urlUpdateRequest);
 }
@@ -0,0 +1,28 @@
+package org.url.urlshortenerbe.repositories;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import org.url.urlshortenerbe.entities.CacheInvalidation;
+
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM CacheInvalidation c")
+    long findMaxId();
+
+    List<CacheInvalidation> findAllByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    List<CacheInvalidation> findAllByIdIn(Collection<Long> ids);
+
+    // JPQL has no LIMIT on DELETE, a bounded chunk keeps the purge from locking the whole table
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM cache_invalidation WHERE created_at < :before LIMIT :limit", nativeQuery = true)
+    int deleteChunkCreatedBefore(@Param("before") Date before, @Param("limit") int limit);
+}
@@ -3,10 +3,12 @@ package org.url.urlshortenerbe.repositories;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.url.urlshortenerbe.entities.Campaign;
 
 public interface CampaignRepository extends JpaRepository<Campaign, String> {
@@ -16,6 +18,46 @@ public interface CampaignRepository extends JpaRepository<Campaign, String> {
 
     Page<Campaign> findAllByUserIdAndDeletedIs(String userId, boolean deleted, Pageable pageable);
 
+    // Cursor pages over the uuid primary key, a null deleted means both
+    @Query(
+            """
+			SELECT
+				c
+			FROM
+				Campaign c
+			WHERE
+				c.id > :afterId
+				AND (:deleted IS NULL OR c.deleted = :deleted)
+			ORDER BY
+				c.id
+			""")
+    List<Campaign> findAllAfterId(@Param("afterId") String afterId, @Param("deleted") Boolean deleted, Limit limit);
+
+    @Query("SELECT COUNT(c) FROM Campaign c WHERE :deleted IS NULL OR c.deleted = :deleted")
+    long countByDeleted(@Param("deleted") Boolean deleted);
+
+    @Query(
+            """
+			SELECT
+				c
+			FROM
+				Campaign c
+			WHERE
+				c.user.id = :userId
+				AND c.id > :afterId
+				AND (:deleted IS NULL OR c.deleted = :deleted)
+			ORDER BY
+				c.id
+			""")
+    List<Campaign> findAllByUserIdAfterId(
+            @Param("userId") String userId,
+            @Param("afterId") String afterId,
+            @Param("deleted") Boolean deleted,
+            Limit limit);
+
+    @Query("SELECT COUNT(c) FROM Campaign c WHERE c.user.id = :userId AND (:deleted IS NULL OR c.deleted = :deleted)")
+    long countByUserIdAndDeleted(@Param("userId") String userId, @Param("deleted") Boolean deleted);
+
     Optional<Campaign> findByIdAndUserId(String campaignId, String userId);
 
     @Query(
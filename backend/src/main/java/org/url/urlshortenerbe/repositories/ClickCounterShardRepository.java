@@ -0,0 +1,30 @@
+package org.url.urlshortenerbe.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.url.urlshortenerbe.entities.ClickCounterShard;
+
+public interface ClickCounterShardRepository extends JpaRepository<ClickCounterShard, ClickCounterShard.Key> {
+    @Query("SELECT s.urlId, SUM(s.clicks) FROM ClickCounterShard s WHERE s.urlId IN :urlIds GROUP BY s.urlId")
+    List<Object[]> sumClicksByUrlIdIn(@Param("urlIds") Collection<Integer> urlIds);
+
+    @Query(
+            """
+			SELECT
+				COALESCE(SUM(s.clicks), 0)
+			FROM
+				ClickCounterShard s
+			JOIN
+				Url u
+			ON
+				u.id = s.urlId
+			WHERE
+				u.campaign.id = :campaignId
+				AND u.user.id = :userId
+			""")
+    long sumClicksByCampaignIdAndUserId(@Param("campaignId") String campaignId, @Param("userId") String userId);
+}
@@ -1,14 +1,16 @@
 package org.url.urlshortenerbe.repositories;
 
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.url.urlshortenerbe.entities.Click;
 
 public interface ClickRepository extends JpaRepository<Click, Long> {
-    Integer countByUrlId(int id);
-
     @Query(
             """
 			SELECT
@@ -25,4 +27,8 @@ public interface ClickRepository extends JpaRepository<Click, Long> {
 				AND u.campaign.id = :campaignId
 	""")
     Page<Click> findAllByHashAndCampaignIdAndUserId(String hash, String campaignId, String userId, Pageable pageable);
+
+    // Cursor pages, a range read on the (url_id, id) entries of the foreign key index
+    @Query("SELECT c FROM Click c WHERE c.url.id = :urlId AND c.id > :afterId ORDER BY c.id")
+    List<Click> findAllByUrlIdAfterId(@Param("urlId") int urlId, @Param("afterId") long afterId, Limit limit);
 }
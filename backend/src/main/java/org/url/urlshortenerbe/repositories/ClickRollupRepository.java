@@ -0,0 +1,122 @@
+package org.url.urlshortenerbe.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import org.url.urlshortenerbe.entities.ClickRollup;
+import org.url.urlshortenerbe.entities.RollupGranularity;
+
+public interface ClickRollupRepository extends JpaRepository<ClickRollup, ClickRollup.Key> {
+    @Query(
+            """
+			SELECT
+				r.bucketStart, SUM(r.clicks)
+			FROM
+				ClickRollup r
+			WHERE
+				r.urlId = :urlId
+				AND r.granularity = :granularity
+				AND r.bucketStart >= :from
+				AND r.bucketStart < :to
+			GROUP BY
+				r.bucketStart
+			ORDER BY
+				r.bucketStart
+			""")
+    List<Object[]> sumClicksByBucket(
+            @Param("urlId") int urlId,
+            @Param("granularity") RollupGranularity granularity,
+            @Param("from") Date from,
+            @Param("to") Date to);
+
+    @Query(
+            """
+			SELECT
+				r.platform, SUM(r.clicks)
+			FROM
+				ClickRollup r
+			WHERE
+				r.urlId = :urlId
+				AND r.granularity = :granularity
+				AND r.bucketStart >= :from
+				AND r.bucketStart < :to
+			GROUP BY
+				r.platform
+			ORDER BY
+				SUM(r.clicks) DESC
+			""")
+    List<Object[]> sumClicksByPlatform(
+            @Param("urlId") int urlId,
+            @Param("granularity") RollupGranularity granularity,
+            @Param("from") Date from,
+            @Param("to") Date to);
+
+    // Urls of the campaign ranked by their clicks in the window, those without any are not returned
+    @Query(
+            """
+			SELECT
+				r.urlId, SUM(r.clicks) AS clicks
+			FROM
+				ClickRollup r
+			JOIN
+				Url u
+			ON
+				u.id = r.urlId
+			WHERE
+				u.campaign.id = :campaignId
+				AND u.user.id = :userId
+				AND r.granularity = :granularity
+				AND r.bucketStart >= :from
+				AND r.bucketStart < :to
+			GROUP BY
+				r.urlId
+			ORDER BY
+				clicks DESC, r.urlId
+			""")
+    List<Object[]> findMostClickedByCampaignIdAndUserId(
+            @Param("campaignId") String campaignId,
+            @Param("userId") String userId,
+            @Param("granularity") RollupGranularity granularity,
+            @Param("from") Date from,
+            @Param("to") Date to,
+            Pageable pageable);
+
+    @Query(
+            """
+			SELECT
+				COALESCE(SUM(r.clicks), 0)
+			FROM
+				ClickRollup r
+			JOIN
+				Url u
+			ON
+				u.id = r.urlId
+			WHERE
+				u.campaign.id = :campaignId
+				AND u.user.id = :userId
+				AND r.granularity = :granularity
+				AND r.bucketStart >= :from
+				AND r.bucketStart < :to
+			""")
+    long sumClicksByCampaignIdAndUserId(
+            @Param("campaignId") String campaignId,
+            @Param("userId") String userId,
+            @Param("granularity") RollupGranularity granularity,
+            @Param("from") Date from,
+            @Param("to") Date to);
+
+    // Same bounded chunks as the invalidation log compaction
+    @Modifying
+    @Transactional
+    @Query(
+            value = "DELETE FROM click_rollup WHERE granularity = :granularity AND bucket_start < :before LIMIT :limit",
+            nativeQuery = true)
+    int deleteChunkBefore(
+            @Param("granularity") String granularity, @Param("before") Date before, @Param("limit") int limit);
+}
@@ -1,6 +1,37 @@
 package org.url.urlshortenerbe.repositories;
 
+import java.util.Date;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.url.urlshortenerbe.entities.RevokedToken;
 
-public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {}
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    List<RevokedToken> findAllByExpiryDateAfter(Date date);
+
+    List<RevokedToken> findAllByRevokedAtAfter(Date date);
+
+    // Rows from before revokedAt was added hold the access token's expiry, moves them to the refresh deadline.
+    // Setting revokedAt runs it once and lets the pods that loaded the old dates pick up the new ones
+    @Modifying
+    @Transactional
+    @Query(
+            value =
+                    """
+					UPDATE revoked_token
+					SET expiry_date = DATE_ADD(expiry_date, INTERVAL :seconds SECOND), revoked_at = :now
+					WHERE revoked_at IS NULL
+					""",
+            nativeQuery = true)
+    int extendLegacyExpiryDates(@Param("seconds") long seconds, @Param("now") Date now);
+
+    // JPQL has no LIMIT on DELETE, a bounded chunk keeps the purge from locking the whole table
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM revoked_token WHERE expiry_date < :before LIMIT :limit", nativeQuery = true)
+    int deleteChunkExpiredBefore(@Param("before") Date before, @Param("limit") int limit);
+}
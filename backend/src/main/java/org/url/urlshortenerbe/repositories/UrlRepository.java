@@ -1,18 +1,63 @@
 package org.url.urlshortenerbe.repositories;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import org.url.urlshortenerbe.caches.RedirectEntry;
 import org.url.urlshortenerbe.entities.Url;
 
 public interface UrlRepository extends JpaRepository<Url, Integer> {
     boolean existsByHash(String hash);
 
+    // Live links to a destination, newest expiry first. Campaign links are left out, they belong to their campaign
+    @Query(
+            """
+			SELECT
+				u
+			FROM
+				Url u
+			WHERE
+				u.longUrlDigest = :digest
+				AND u.user.id = :userId
+				AND u.campaign IS NULL
+				AND u.deleted = FALSE
+				AND u.expiresAt > :now
+			ORDER BY
+				u.expiresAt DESC
+			""")
+    List<Url> findLiveByLongUrlDigestAndUserId(
+            @Param("digest") byte[] digest, @Param("userId") String userId, @Param("now") Date now, Limit limit);
+
+    @Query(
+            """
+			SELECT
+				u
+			FROM
+				Url u
+			WHERE
+				u.longUrlDigest = :digest
+				AND u.user IS NULL
+				AND u.campaign IS NULL
+				AND u.deleted = FALSE
+				AND u.expiresAt > :now
+			ORDER BY
+				u.expiresAt DESC
+			""")
+    List<Url> findLiveGuestByLongUrlDigest(@Param("digest") byte[] digest, @Param("now") Date now, Limit limit);
+
+    // The ones already taken among many candidate hashes, one lookup on the unique index each
+    @Query("SELECT u.hash FROM Url u WHERE u.hash IN :hashes")
+    List<String> findHashesByHashIn(@Param("hashes") Collection<String> hashes);
+
     Page<Url> findAllByUserId(String userId, Pageable pageable);
 
     Page<Url> findAllByDeletedIs(boolean deleted, Pageable pageable);
@@ -21,36 +66,156 @@ public interface UrlRepository extends JpaRepository<Url, Integer> {
 
     Page<Url> findAllByCampaignIdAndUserId(String campaignId, String userId, Pageable pageable);
 
+    // Cursor pages: a range read on the primary key, or on (user_id, id) and (campaign_id, id) through the
+    // foreign key indexes. A null deleted means both
+    @Query(
+            """
+			SELECT
+				u
+			FROM
+				Url u
+			WHERE
+				u.id > :afterId
+				AND (:deleted IS NULL OR u.deleted = :deleted)
+			ORDER BY
+				u.id
+			""")
+    List<Url> findAllAfterId(@Param("afterId") int afterId, @Param("deleted") Boolean deleted, Limit limit);
+
+    @Query("SELECT COUNT(u) FROM Url u WHERE :deleted IS NULL OR u.deleted = :deleted")
+    long countByDeleted(@Param("deleted") Boolean deleted);
+
+    @Query(
+            """
+			SELECT
+				u
+			FROM
+				Url u
+			WHERE
+				u.user.id = :userId
+				AND u.id > :afterId
+				AND (:deleted IS NULL OR u.deleted = :deleted)
+			ORDER BY
+				u.id
+			""")
+    List<Url> findAllByUserIdAfterId(
+            @Param("userId") String userId,
+            @Param("afterId") int afterId,
+            @Param("deleted") Boolean deleted,
+            Limit limit);
+
+    @Query("SELECT COUNT(u) FROM Url u WHERE u.user.id = :userId AND (:deleted IS NULL OR u.deleted = :deleted)")
+    long countByUserIdAndDeleted(@Param("userId") String userId, @Param("deleted") Boolean deleted);
+
+    @Query(
+            """
+			SELECT
+				u
+			FROM
+				Url u
+			WHERE
+				u.campaign.id = :campaignId
+				AND u.user.id = :userId
+				AND u.id > :afterId
+				AND (:deleted IS NULL OR u.deleted = :deleted)
+			ORDER BY
+				u.id
+			""")
+    List<Url> findAllByCampaignIdAndUserIdAfterId(
+            @Param("campaignId") String campaignId,
+            @Param("userId") String userId,
+            @Param("afterId") int afterId,
+            @Param("deleted") Boolean deleted,
+            Limit limit);
+
+    @Query(
+            """
+			SELECT
+				COUNT(u)
+			FROM
+				Url u
+			WHERE
+				u.campaign.id = :campaignId
+				AND u.user.id = :userId
+				AND (:deleted IS NULL OR u.deleted = :deleted)
+			""")
+    long countByCampaignIdAndUserIdAndDeleted(
+            @Param("campaignId") String campaignId, @Param("userId") String userId, @Param("deleted") Boolean deleted);
+
     Page<Url> findAllByCampaignIdAndUserIdAndDeletedIs(
             String campaignId, String userId, boolean deleted, Pageable pageable);
 
     Optional<Url> findByHash(String hash);
 
+    // Redirect lookup: a constructor projection is never managed, so no proxies and no dirty-checking snapshot
+    @Transactional(readOnly = true)
+    @Query(
+            """
+			SELECT new org.url.urlshortenerbe.caches.RedirectEntry(
+				u.id, u.longUrl, u.expiresAt, u.deleted, COALESCE(u.redirectType, c.redirectType), c.endDate
+			)
+			FROM
+				Url u
+			LEFT JOIN
+				u.campaign c
+			WHERE
+				u.hash = :hash
+			""")
+    Optional<RedirectEntry> findRedirectEntryByHash(@Param("hash") String hash);
+
+    // Same columns as findRedirectEntryByHash, prefixed with the hash, for loading many entries at once
+    @Transactional(readOnly = true)
+    @Query(
+            """
+			SELECT
+				u.hash, u.id, u.longUrl, u.expiresAt, u.deleted, COALESCE(u.redirectType, c.redirectType), c.endDate
+			FROM
+				Url u
+			LEFT JOIN
+				u.campaign c
+			WHERE
+				u.id IN :ids
+			""")
+    List<Object[]> findRedirectRowsByIdIn(@Param("ids") Collection<Integer> ids);
+
     Optional<Url> findByHashAndUserId(String hash, String userId);
 
     Optional<Url> findByHashAndCampaignIdAndUserId(String urlId, String campaignId, String userId);
 
+    List<Url> findAllByCampaignIdAndUserId(String campaignId, String userId);
+
+    long countByCampaignIdAndUserId(String campaignId, String userId);
+
+    // Ranked by url.click_count plus the shard rows, MySQL keeps only offset + limit rows while sorting
     @Query(
             """
-						SELECT
-							u,
-							COUNT(c.id) AS clickCount
-						FROM
-							Url u
-						LEFT JOIN
-							Click c ON u.id = c.url.id
-						WHERE
-							u.campaign.id = :campaignId
-							AND u.user.id = :userId
-						GROUP BY
-							u.id
-						ORDER BY
-							clickCount DESC
-					""")
-    List<Object[]> findMostClickedUrlsByCampaignIdAndUserId(
-            @Param("campaignId") String campaignId, @Param("userId") String userId);
+			SELECT
+				u, u.clickCount + COALESCE((SELECT SUM(s.clicks) FROM ClickCounterShard s WHERE s.urlId = u.id), 0) AS clicks
+			FROM
+				Url u
+			WHERE
+				u.campaign.id = :campaignId
+				AND u.user.id = :userId
+			ORDER BY
+				clicks DESC, u.id
+			""")
+    List<Object[]> findMostClickedByCampaignIdAndUserId(
+            @Param("campaignId") String campaignId, @Param("userId") String userId, Pageable pageable);
 
-    List<Url> findAllByCampaignIdAndUserId(String campaignId, String userId);
+    @Query(
+            """
+			SELECT
+				COALESCE(SUM(u.clickCount), 0)
+			FROM
+				Url u
+			WHERE
+				u.campaign.id = :campaignId
+				AND u.user.id = :userId
+			""")
+    long sumClickCountByCampaignIdAndUserId(@Param("campaignId") String campaignId, @Param("userId") String userId);
+
+    @Query("SELECT u.hash FROM Url u WHERE u.campaign.id = :campaignId")
+    List<String> findHashesByCampaignId(@Param("campaignId") String campaignId);
 
     @Query(
             """
@@ -93,5 +258,96 @@ public interface UrlRepository extends JpaRepository<Url, Integer> {
 			""")
     List<Url> searchUrlsWithinUserIdAndCampaignId(String userId, String campaignId, String q, Pageable pageable);
 
+    // Ranked by the url_search_ngram FULLTEXT index, :phrase is a quoted boolean mode phrase. See UrlSearchService
+    @Query(
+            value =
+                    """
+			SELECT
+				u.*
+			FROM
+				url u
+			WHERE
+				MATCH (u.hash, u.long_url) AGAINST (:phrase IN BOOLEAN MODE)
+			ORDER BY
+				MATCH (u.hash, u.long_url) AGAINST (:phrase IN BOOLEAN MODE) DESC, u.id DESC
+			LIMIT :limit
+			""",
+            nativeQuery = true)
+    List<Url> searchByNgrams(@Param("phrase") String phrase, @Param("limit") int limit);
+
+    @Query(
+            value =
+                    """
+			SELECT
+				u.*
+			FROM
+				url u
+			WHERE
+				MATCH (u.hash, u.long_url) AGAINST (:phrase IN BOOLEAN MODE)
+				AND u.user_id = :userId
+			ORDER BY
+				MATCH (u.hash, u.long_url) AGAINST (:phrase IN BOOLEAN MODE) DESC, u.id DESC
+			LIMIT :limit
+			""",
+            nativeQuery = true)
+    List<Url> searchByNgramsWithinUserId(
+            @Param("userId") String userId, @Param("phrase") String phrase, @Param("limit") int limit);
+
+    @Query(
+            value =
+                    """
+			SELECT
+				u.*
+			FROM
+				url u
+			WHERE
+				MATCH (u.hash, u.long_url) AGAINST (:phrase IN BOOLEAN MODE)
+				AND u.user_id = :userId
+				AND u.campaign_id = :campaignId
+			ORDER BY
+				MATCH (u.hash, u.long_url) AGAINST (:phrase IN BOOLEAN MODE) DESC, u.id DESC
+			LIMIT :limit
+			""",
+            nativeQuery = true)
+    List<Url> searchByNgramsWithinUserIdAndCampaignId(
+            @Param("userId") String userId,
+            @Param("campaignId") String campaignId,
+            @Param("phrase") String phrase,
+            @Param("limit") int limit);
+
+    // Queries shorter than an n-gram, served by the unique index on hash
+    List<Url> findAllByHashStartingWith(String prefix, Limit limit);
+
+    List<Url> findAllByUserIdAndHashStartingWith(String userId, String prefix, Limit limit);
+
+    List<Url> findAllByUserIdAndCampaignIdAndHashStartingWith(
+            String userId, String campaignId, String prefix, Limit limit);
+
     boolean existsByHashAndCampaignIdAndUserId(String hash, String campaignId, String userId);
+
+    long countByDeletedIsFalseAndExpiresAtAfter(Date now);
+
+    // Keyset scan over the urls that can still be redirected, same columns as findRedirectRowsByIdIn
+    @Transactional(readOnly = true)
+    @Query(
+            """
+			SELECT
+				u.hash, u.id, u.longUrl, u.expiresAt, u.deleted, COALESCE(u.redirectType, c.redirectType), c.endDate
+			FROM
+				Url u
+			LEFT JOIN
+				u.campaign c
+			WHERE
+				u.id > :afterId
+				AND u.deleted = false
+				AND u.expiresAt > :now
+			ORDER BY
+				u.id
+			""")
+    List<Object[]> findLiveRedirectRowsAfterId(
+            @Param("afterId") int afterId, @Param("now") Date now, Pageable pageable);
+
+    // Keyset scan over every hash, used to build in-memory structures page by page
+    @Query("SELECT u.id, u.hash FROM Url u WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findIdAndHashAfterId(@Param("afterId") int afterId, Pageable pageable);
 }
@@ -1,10 +1,14 @@
 package org.url.urlshortenerbe.repositories;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.url.urlshortenerbe.entities.User;
 
 public interface UserRepository extends JpaRepository<User, String> {
@@ -12,5 +16,23 @@ public interface UserRepository extends JpaRepository<User, String> {
 
     Page<User> findAllByBannedIs(boolean b, Pageable pageable);
 
+    // Cursor pages over the uuid primary key, a null banned means both
+    @Query(
+            """
+			SELECT
+				u
+			FROM
+				User u
+			WHERE
+				u.id > :afterId
+				AND (:banned IS NULL OR u.banned = :banned)
+			ORDER BY
+				u.id
+			""")
+    List<User> findAllAfterId(@Param("afterId") String afterId, @Param("banned") Boolean banned, Limit limit);
+
+    @Query("SELECT COUNT(u) FROM User u WHERE :banned IS NULL OR u.banned = :banned")
+    long countByBanned(@Param("banned") Boolean banned);
+
     Optional<User> findByEmail(String username);
 }
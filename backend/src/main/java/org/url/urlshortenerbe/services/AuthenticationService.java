@@ -1,6 +1,7 @@
 package org.url.urlshortenerbe.services;
 
 import java.text.ParseException;
+import java.time.Instant;
 import java.util.Date;
 import java.util.stream.Collectors;
 
@@ -10,6 +11,8 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.url.urlshortenerbe.caches.RevokedTokenStore;
+import org.url.urlshortenerbe.caches.VerifiedTokenCache;
 import org.url.urlshortenerbe.dtos.requests.AuthenticationRequest;
 import org.url.urlshortenerbe.dtos.requests.IntrospectTokenRequest;
 import org.url.urlshortenerbe.dtos.requests.RefreshTokenRequest;
@@ -46,6 +49,8 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
 
     private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RevokedTokenStore revokedTokenStore;
 
     public AuthenticationResponse authenticate(AuthenticationRequest authenticationRequest) {
         User user = userRepository
@@ -86,12 +91,7 @@ public class AuthenticationService {
         try {
             SignedJWT signedJWT = jwtUtil.verifyJWT(revokeTokenRequest.getToken(), true);
 
-            String jit = signedJWT.getJWTClaimsSet().getJWTID();
-            Date expiryDate = signedJWT.getJWTClaimsSet().getExpirationTime();
-
-            revokedTokenRepository.save(
-                    RevokedToken.builder().id(jit).expiryDate(expiryDate).build());
-
+            revoke(revokeTokenRequest.getToken(), signedJWT);
         } catch (Exception e) {
         }
     }
@@ -101,13 +101,7 @@ public class AuthenticationService {
         // Revoke the old token
         SignedJWT signedJWT = jwtUtil.verifyJWT(refreshTokenRequest.getToken(), true);
 
-        String jit = signedJWT.getJWTClaimsSet().getJWTID();
-        Date expiryDate = signedJWT.getJWTClaimsSet().getExpirationTime();
-
-        RevokedToken revokedToken =
-                RevokedToken.builder().id(jit).expiryDate(expiryDate).build();
-
-        revokedTokenRepository.save(revokedToken);
+        revoke(refreshTokenRequest.getToken(), signedJWT);
 
         // Issue new token
         String username = signedJWT.getJWTClaimsSet().getSubject();
@@ -118,6 +112,21 @@ public class AuthenticationService {
         return AuthenticationResponse.builder().token(token).build();
     }
 
+    // Kept until the refresh window closes, not just until exp: an expired token can still be refreshed until then
+    private void revoke(String token, SignedJWT signedJWT) throws ParseException {
+        String jit = signedJWT.getJWTClaimsSet().getJWTID();
+        Date expiryDate = jwtUtil.getRefreshDeadline(signedJWT);
+
+        revokedTokenRepository.save(RevokedToken.builder()
+                .id(jit)
+                .expiryDate(expiryDate)
+                .revokedAt(Date.from(Instant.now()))
+                .build());
+
+        revokedTokenStore.add(jit, expiryDate);
+        verifiedTokenCache.invalidate(token);
+    }
+
     public UserResponse getCurrentUser() {
         SecurityContext securityContext = SecurityContextHolder.getContext();
         String email = securityContext.getAuthentication().getName();
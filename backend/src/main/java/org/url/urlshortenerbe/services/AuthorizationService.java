@@ -0,0 +1,62 @@
+package org.url.urlshortenerbe.services;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.url.urlshortenerbe.exceptions.AppException;
+import org.url.urlshortenerbe.exceptions.ErrorCode;
+import org.url.urlshortenerbe.repositories.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+
+// Checks on the caller answered from the verified token: the user id rides in the uid claim and the roles in the
+// scope, so comparing them with a {userId} path variable needs no query. Tokens issued before the uid claim
+// existed fall back to loading the user and comparing emails, until they expire
+@Service
+@RequiredArgsConstructor
+public class AuthorizationService {
+    public static final String USER_ID_CLAIM = "uid";
+
+    private final UserRepository userRepository;
+
+    public boolean isCurrentUser(String userId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication instanceof JwtAuthenticationToken jwtAuthenticationToken) {
+            String currentUserId = jwtAuthenticationToken.getToken().getClaimAsString(USER_ID_CLAIM);
+
+            if (null != currentUserId) {
+                return currentUserId.equals(userId);
+            }
+        }
+
+        return userRepository
+                .findById(userId)
+                .orElseThrow(() -> new AppException(ErrorCode.USER_NOTFOUND))
+                .getEmail()
+                .equals(authentication.getName());
+    }
+
+    // Role names without the ROLE_ prefix
+    public boolean hasAnyRole(String... roles) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            for (String role : roles) {
+                if (authority.getAuthority().equals("ROLE_" + role)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public void checkCurrentUser(String userId) {
+        if (!isCurrentUser(userId)) {
+            throw new AppException(ErrorCode.UNAUTHORIZED);
+        }
+    }
+}
@@ -4,12 +4,14 @@ import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.url.urlshortenerbe.caches.CacheInvalidationFeed;
+import org.url.urlshortenerbe.caches.PageCountCache;
 import org.url.urlshortenerbe.dtos.requests.CampaignCreationRequest;
 import org.url.urlshortenerbe.dtos.requests.CampaignUpdateRequest;
 import org.url.urlshortenerbe.dtos.responses.CampaignResponse;
@@ -23,6 +25,7 @@ import org.url.urlshortenerbe.mappers.CampaignMapper;
 import org.url.urlshortenerbe.repositories.CampaignRepository;
 import org.url.urlshortenerbe.repositories.UrlRepository;
 import org.url.urlshortenerbe.repositories.UserRepository;
+import org.url.urlshortenerbe.utils.PageCursor;
 
 import lombok.RequiredArgsConstructor;
 
@@ -33,28 +36,49 @@ public class CampaignService {
     private final CampaignRepository campaignRepository;
     private final UrlRepository urlRepository;
 
+    private final AuthorizationService authorizationService;
+
     private final CampaignMapper campaignMapper;
 
-    public PageResponse<CampaignResponse> getAll(int page, int size, String type) {
-        PageRequest pageRequest = PageRequest.of(page - 1, size);
-
-        Page<Campaign> campaigns =
-                switch (type) {
-                    case ("not_deleted") -> campaignRepository.findAllByDeletedIs(false, pageRequest);
-                    case ("deleted") -> campaignRepository.findAllByDeletedIs(true, pageRequest);
-                    default -> campaignRepository.findAll(pageRequest);
-                };
-
-        List<CampaignResponse> campaignResponses = campaigns.getContent().stream()
-                .map(campaignMapper::toCampaignResponse)
-                .toList();
-
-        return PageResponse.<CampaignResponse>builder()
-                .items(campaignResponses)
-                .page(page)
-                .records(campaigns.getTotalElements())
-                .totalPages(campaigns.getTotalPages())
-                .build();
+    private final CacheInvalidationFeed cacheInvalidationFeed;
+    private final PageCountCache pageCountCache;
+
+    public PageResponse<CampaignResponse> getAll(int page, int size, String type, String cursor, boolean count) {
+        PageResponse.PageResponseBuilder<CampaignResponse> response = PageResponse.builder();
+        List<Campaign> campaigns;
+
+        if (null == cursor) {
+            PageRequest pageRequest = PageRequest.of(page - 1, size);
+
+            Page<Campaign> campaignsPage =
+                    switch (type) {
+                        case ("not_deleted") -> campaignRepository.findAllByDeletedIs(false, pageRequest);
+                        case ("deleted") -> campaignRepository.findAllByDeletedIs(true, pageRequest);
+                        default -> campaignRepository.findAll(pageRequest);
+                    };
+
+            campaigns = campaignsPage.getContent();
+            response.page(page).records(campaignsPage.getTotalElements()).totalPages(campaignsPage.getTotalPages());
+        } else {
+            Boolean deleted = deletedFilter(type);
+            PageCursor.Slice<Campaign> slice = PageCursor.slice(
+                    campaignRepository.findAllAfterId(PageCursor.decodeString(cursor), deleted, Limit.of(size + 1)),
+                    size,
+                    Campaign::getId);
+
+            campaigns = slice.items();
+            response.nextCursor(slice.nextCursor());
+
+            if (count) {
+                response.records(
+                        pageCountCache.get("campaigns:" + deleted, () -> campaignRepository.countByDeleted(deleted)));
+            }
+        }
+
+        List<CampaignResponse> campaignResponses =
+                campaigns.stream().map(campaignMapper::toCampaignResponse).toList();
+
+        return response.items(campaignResponses).build();
     }
 
     public CampaignResponse getOneById(String campaignId) {
@@ -111,34 +135,55 @@ public class CampaignService {
         return campaigns.stream().map(campaignMapper::toCampaignResponse).toList();
     }
 
-    public PageResponse<CampaignResponse> getAllByUserId(String userId, int page, int size, String type) {
+    public PageResponse<CampaignResponse> getAllByUserId(
+            String userId, int page, int size, String type, String cursor, boolean count) {
         User user = getCorrectUser(userId);
 
         if (null == user) {
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         }
 
-        PageRequest pageRequest = PageRequest.of(page - 1, size);
-
-        Page<Campaign> campaigns =
-                switch (type) {
-                    case ("not_deleted") -> campaignRepository.findAllByUserIdAndDeletedIs(userId, false, pageRequest);
-                    case ("deleted") -> campaignRepository.findAllByUserIdAndDeletedIs(userId, true, pageRequest);
-                    default -> campaignRepository.findAll(pageRequest);
-                };
-
-        List<CampaignResponse> campaignResponses = campaigns.getContent().stream()
-                .map(campaignMapper::toCampaignResponse)
-                .toList();
-
-        return PageResponse.<CampaignResponse>builder()
-                .items(campaignResponses)
-                .page(page)
-                .records(campaigns.getTotalElements())
-                .totalPages(campaigns.getTotalPages())
-                .build();
+        PageResponse.PageResponseBuilder<CampaignResponse> response = PageResponse.builder();
+        List<Campaign> campaigns;
+
+        if (null == cursor) {
+            PageRequest pageRequest = PageRequest.of(page - 1, size);
+
+            Page<Campaign> campaignsPage =
+                    switch (type) {
+                        case ("not_deleted") -> campaignRepository.findAllByUserIdAndDeletedIs(
+                                userId, false, pageRequest);
+                        case ("deleted") -> campaignRepository.findAllByUserIdAndDeletedIs(userId, true, pageRequest);
+                        default -> campaignRepository.findAll(pageRequest);
+                    };
+
+            campaigns = campaignsPage.getContent();
+            response.page(page).records(campaignsPage.getTotalElements()).totalPages(campaignsPage.getTotalPages());
+        } else {
+            Boolean deleted = deletedFilter(type);
+            PageCursor.Slice<Campaign> slice = PageCursor.slice(
+                    campaignRepository.findAllByUserIdAfterId(
+                            userId, PageCursor.decodeString(cursor), deleted, Limit.of(size + 1)),
+                    size,
+                    Campaign::getId);
+
+            campaigns = slice.items();
+            response.nextCursor(slice.nextCursor());
+
+            if (count) {
+                response.records(pageCountCache.get(
+                        "campaigns:" + userId + ":" + deleted,
+                        () -> campaignRepository.countByUserIdAndDeleted(userId, deleted)));
+            }
+        }
+
+        List<CampaignResponse> campaignResponses =
+                campaigns.stream().map(campaignMapper::toCampaignResponse).toList();
+
+        return response.items(campaignResponses).build();
     }
 
+    @Transactional
     public CampaignResponse updateOneWithIdAndUserId(
             String campaignId, String userId, CampaignUpdateRequest campaignUpdateRequest) {
         User user = getCorrectUser(userId);
@@ -164,6 +209,9 @@ public class CampaignService {
 
         campaign = campaignRepository.save(campaign);
 
+        // Cached entries still carry the old expiry, end date and redirect type
+        cacheInvalidationFeed.publish(urlRepository.findHashesByCampaignId(campaignId));
+
         return campaignMapper.toCampaignResponse(campaign);
     }
 
@@ -192,6 +240,7 @@ public class CampaignService {
         campaignRepository.save(campaign);
     }
 
+    @Transactional
     public CampaignResponse updateOneById(String campaignId, CampaignUpdateRequest campaignUpdateRequest) {
         Campaign campaign = campaignRepository
                 .findById(campaignId)
@@ -201,19 +250,27 @@ public class CampaignService {
 
         campaign = campaignRepository.save(campaign);
 
+        cacheInvalidationFeed.publish(urlRepository.findHashesByCampaignId(campaignId));
+
         return campaignMapper.toCampaignResponse(campaign);
     }
 
+    // Ownership comes from the token. The reference is a lazy proxy, the user is only loaded if more than its id
+    // is read, e.g. its dedup setting
     private User getCorrectUser(String userId) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOTFOUND));
-
-        SecurityContext securityContext = SecurityContextHolder.getContext();
-        String email = securityContext.getAuthentication().getName();
-
-        if (!user.getEmail().equals(email)) {
+        if (!authorizationService.isCurrentUser(userId)) {
             return null;
         }
 
-        return user;
+        return userRepository.getReferenceById(userId);
+    }
+
+    // Cursor queries take the type as a nullable filter
+    private static Boolean deletedFilter(String type) {
+        return switch (type) {
+            case "not_deleted" -> false;
+            case "deleted" -> true;
+            default -> null;
+        };
     }
 }
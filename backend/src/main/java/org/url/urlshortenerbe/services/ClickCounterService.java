@@ -0,0 +1,269 @@
+package org.url.urlshortenerbe.services;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.url.urlshortenerbe.entities.Url;
+import org.url.urlshortenerbe.repositories.ClickCounterShardRepository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Click totals without a COUNT over the click table: redirects bump an in-memory adder, the deltas reach the
+// database as additive upserts into one of a few shard rows, and a url's total is url.click_count plus its shards
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClickCounterService {
+    private static final String CHECKPOINT = "reconcile";
+
+    private static final String INCREMENT_SQL =
+            """
+			INSERT INTO click_counter_shard (url_id, shard, clicks) VALUES (?, ?, ?) AS new
+			ON DUPLICATE KEY UPDATE clicks = click_counter_shard.clicks + new.clicks
+			""";
+
+    // Recounts a range of urls from the raw clicks, the only statement here that scans the click table
+    private static final String RECONCILE_SQL =
+            """
+			UPDATE url u
+			SET u.click_count = (SELECT COUNT(*) FROM click c WHERE c.url_id = u.id)
+			WHERE u.id > ? AND u.id <= ?
+			""";
+
+    // Locked before the recount, so no flush lands in the range between the recount and the delete
+    private static final String LOCK_SHARDS_SQL =
+            "SELECT url_id FROM click_counter_shard WHERE url_id > ? AND url_id <= ? FOR UPDATE";
+
+    // The recount above already includes what the shards held
+    private static final String CLEAR_SHARDS_SQL = "DELETE FROM click_counter_shard WHERE url_id > ? AND url_id <= ?";
+
+    @Value("${click.counter.shards}")
+    private int shards;
+
+    // seconds
+    @Value("${click.counter.reconcile-interval}")
+    private long reconcileInterval;
+
+    @Value("${click.counter.reconcile-page-size}")
+    private int reconcilePageSize;
+
+    // seconds
+    @Value("${click.counter.read-cache-ttl}")
+    private long readCacheTtl;
+
+    @Value("${click.counter.read-cache-size}")
+    private long readCacheSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ClickCounterShardRepository clickCounterShardRepository;
+
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+
+    // Not synchronized: flush holds the lock over the batch update, a monitor there would pin the virtual thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Sum of the shard rows per url, listings and campaign stats read the same hot urls over and over
+    private Cache<Integer, Long> shardSums;
+
+    // LongAdder stripes the increments across cells, so a viral link does not make redirects contend on one value
+    private static final class Counter {
+        private final LongAdder clicks = new LongAdder();
+
+        // Only touched by the flushing thread
+        private long flushed;
+    }
+
+    @PostConstruct
+    public void init() {
+        shardSums = Caffeine.newBuilder()
+                .maximumSize(readCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(readCacheTtl))
+                .build();
+
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO click_counter_checkpoint (name, last_url_id) VALUES (?, 0)", CHECKPOINT);
+    }
+
+    // Called on the request thread
+    public void increment(int urlId) {
+        counters.computeIfAbsent(urlId, id -> new Counter()).clicks.increment();
+    }
+
+    public long getClickCount(Url url) {
+        return getClickCounts(List.of(url)).get(url.getId());
+    }
+
+    // One query for the whole page at most, none when the sums are cached
+    public Map<Integer, Long> getClickCounts(Collection<Url> urls) {
+        Map<Integer, Long> sums = shardSums.getAll(urls.stream().map(Url::getId).toList(), this::loadShardSums);
+
+        Map<Integer, Long> clickCounts = new HashMap<>();
+        for (Url url : urls) {
+            clickCounts.put(url.getId(), url.getClickCount() + sums.get(url.getId()));
+        }
+
+        return clickCounts;
+    }
+
+    @Scheduled(fixedDelayString = "${click.counter.flush-interval}", timeUnit = TimeUnit.MILLISECONDS)
+    public void flush() {
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        List<Object[]> increments = new ArrayList<>();
+        List<Counter> flushedCounters = new ArrayList<>();
+        List<Long> totals = new ArrayList<>();
+
+        // A different shard on every flush, so pods and flushes spread over the rows of a hot url
+        int shard = ThreadLocalRandom.current().nextInt(shards);
+
+        counters.forEach((urlId, counter) -> {
+            // Never reset the adder, a reset racing with an increment would lose it
+            long total = counter.clicks.sum();
+            long delta = total - counter.flushed;
+
+            if (delta > 0) {
+                increments.add(new Object[] {urlId, shard, delta});
+                flushedCounters.add(counter);
+                totals.add(total);
+            } else {
+                // Idle since the last flush, stop tracking it. An increment racing with the removal is lost until
+                // the next reconcile
+                counters.remove(urlId, counter);
+            }
+        });
+
+        if (increments.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INCREMENT_SQL, increments);
+        } catch (DataAccessException e) {
+            // Nothing is marked as flushed, the same deltas are retried next time
+            log.error("Could not flush click counters of {} urls", increments.size(), e);
+            return;
+        }
+
+        for (int i = 0; i < flushedCounters.size(); i++) {
+            flushedCounters.get(i).flushed = totals.get(i);
+        }
+    }
+
+    // Corrects drift from lost batches, crashes between a click and its flush, or rows written elsewhere, and
+    // folds the shards back into url.click_count. Clicks still in flight when a range is recounted can leave it
+    // off by those few, the next run fixes that. Every pod schedules it, the checkpoint makes them share one pass
+    @Scheduled(
+            fixedDelayString = "${click.counter.reconcile-interval}",
+            initialDelayString = "${click.counter.reconcile-interval}",
+            timeUnit = TimeUnit.SECONDS)
+    public void reconcile() {
+        long startedAt = System.currentTimeMillis();
+
+        Integer maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM url", Integer.class);
+        if (null == maxId) {
+            return;
+        }
+
+        // Small id ranges so each transaction holds its row locks only briefly
+        int ranges = 0;
+        Integer reconciledTo;
+        do {
+            reconciledTo = transactionTemplate.execute(status -> reconcileNext(maxId));
+            if (null != reconciledTo) {
+                ranges++;
+            }
+        } while (null != reconciledTo && reconciledTo < maxId);
+
+        if (ranges > 0) {
+            shardSums.invalidateAll();
+
+            log.info(
+                    "Click counters reconciled {} ranges up to url {} in {} ms",
+                    ranges,
+                    reconciledTo,
+                    System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    // Returns the last url id recounted, null when another pod completed a pass within the interval
+    private Integer reconcileNext(int maxId) {
+        // The row lock makes the pods take turns, each range is recounted by one of them
+        List<Integer> checkpoint = jdbcTemplate.queryForList(
+                """
+				SELECT last_url_id FROM click_counter_checkpoint
+				WHERE name = ? AND (last_url_id > 0 OR reconciled_at IS NULL
+					OR reconciled_at <= NOW(3) - INTERVAL ? SECOND)
+				FOR UPDATE
+				""",
+                Integer.class,
+                CHECKPOINT,
+                reconcileInterval);
+
+        if (checkpoint.isEmpty()) {
+            return null;
+        }
+
+        int from = checkpoint.get(0);
+        int to = Math.min(from + reconcilePageSize, maxId);
+
+        if (from < to) {
+            jdbcTemplate.queryForList(LOCK_SHARDS_SQL, Integer.class, from, to);
+            jdbcTemplate.update(RECONCILE_SQL, from, to);
+            jdbcTemplate.update(CLEAR_SHARDS_SQL, from, to);
+        }
+
+        if (to >= maxId) {
+            jdbcTemplate.update(
+                    "UPDATE click_counter_checkpoint SET last_url_id = 0, reconciled_at = NOW(3) WHERE name = ?",
+                    CHECKPOINT);
+        } else {
+            jdbcTemplate.update("UPDATE click_counter_checkpoint SET last_url_id = ? WHERE name = ?", to, CHECKPOINT);
+        }
+
+        return to;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Map<Integer, Long> loadShardSums(Set<? extends Integer> urlIds) {
+        Map<Integer, Long> sums = new HashMap<>();
+
+        // Urls without a shard row are cached as 0 too
+        urlIds.forEach(urlId -> sums.put(urlId, 0L));
+        for (Object[] row : clickCounterShardRepository.sumClicksByUrlIdIn(new ArrayList<>(urlIds))) {
+            sums.put((Integer) row[0], ((Number) row[1]).longValue());
+        }
+
+        return sums;
+    }
+}
@@ -0,0 +1,229 @@
+package org.url.urlshortenerbe.services;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import javax.sql.DataSource;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.url.urlshortenerbe.dtos.responses.ClickResponse;
+import org.url.urlshortenerbe.exceptions.AppException;
+import org.url.urlshortenerbe.exceptions.ErrorCode;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Writes every click of a url to the response as the rows come off a streaming MySQL result set, memory stays
+// the same for ten clicks or a hundred million
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClickExportService {
+    // The secondary index on url_id already holds the rows in id order, no filesort
+    private static final String EXPORT_SQL =
+            "SELECT clicked_at, platform, user_agent FROM click WHERE url_id = ? ORDER BY id";
+
+    @Getter
+    @AllArgsConstructor
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+    }
+
+    // An export holds a pooled connection until the last row is written
+    @Value("${click.export.max-concurrent}")
+    private int maxConcurrent;
+
+    // seconds, exports stream for as long as the rows keep coming, other async requests keep the default timeout
+    @Value("${click.export.timeout}")
+    private long timeout;
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    private JdbcTemplate streamingJdbcTemplate;
+    private ObjectWriter clickWriter;
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+
+        // Connector/J streams row by row instead of buffering the whole result only with this fetch size
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+
+        // Same date format as the clicks endpoint, but the output buffer decides when to flush, not every row
+        clickWriter = objectMapper.writerFor(ClickResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    // Taken on the request thread, so a busy pod answers with an error instead of a stalled download
+    public StreamingResponseBody export(int urlId, Format format, boolean gzip) {
+        if (!permits.tryAcquire()) {
+            throw new AppException(ErrorCode.EXPORT_BUSY);
+        }
+
+        // The body owns the permit once it starts. When the request completes without running it (client gone,
+        // an error before the async dispatch), the completion callback gives the permit back instead
+        AtomicBoolean started = new AtomicBoolean();
+
+        WebAsyncUtils.getAsyncManager(
+                        ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest())
+                .registerCallableInterceptor(ClickExportService.class, new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                        // Called before the async request starts, while its timeout can still be changed
+                        if (request instanceof AsyncWebRequest asyncWebRequest) {
+                            asyncWebRequest.setTimeout(TimeUnit.SECONDS.toMillis(timeout));
+                        }
+                    }
+
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        if (started.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+
+        return outputStream -> {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+
+            long startedAt = System.currentTimeMillis();
+
+            try (OutputStream out = gzip
+                    ? new GZIPOutputStream(outputStream, 1 << 16)
+                    : new BufferedOutputStream(outputStream, 1 << 16)) {
+                long rows =
+                        switch (format) {
+                            case NDJSON -> writeNdjson(urlId, out);
+                            case CSV -> writeCsv(urlId, out);
+                        };
+
+                log.info(
+                        "Exported {} clicks of url {} as {} in {} ms",
+                        rows,
+                        urlId,
+                        format,
+                        System.currentTimeMillis() - startedAt);
+            } finally {
+                permits.release();
+            }
+        };
+    }
+
+    private long writeNdjson(int urlId, OutputStream out) throws IOException {
+        // One generator for the whole export, each row reuses its buffers
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        long[] rows = {0};
+        streamingJdbcTemplate.query(
+                EXPORT_SQL,
+                resultSet -> {
+                    try {
+                        clickWriter.writeValue(
+                                generator,
+                                toClickResponse(
+                                        resultSet.getTimestamp(1), resultSet.getString(2), resultSet.getString(3)));
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                },
+                urlId);
+
+        generator.flush();
+        return rows[0];
+    }
+
+    private long writeCsv(int urlId, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("clicked_at,platform,user_agent\n");
+
+        long[] rows = {0};
+        streamingJdbcTemplate.query(
+                EXPORT_SQL,
+                resultSet -> {
+                    try {
+                        Timestamp clickedAt = resultSet.getTimestamp(1);
+
+                        writer.write(
+                                null == clickedAt ? "" : clickedAt.toInstant().toString());
+                        writer.write(',');
+                        writeCsvField(writer, resultSet.getString(2));
+                        writer.write(',');
+                        writeCsvField(writer, resultSet.getString(3));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                },
+                urlId);
+
+        writer.flush();
+        return rows[0];
+    }
+
+    private ClickResponse toClickResponse(Timestamp clickedAt, String platform, String userAgent) {
+        return ClickResponse.builder()
+                .clickedAt(null == clickedAt ? null : new Date(clickedAt.getTime()))
+                .platform(platform)
+                .userAgent(userAgent)
+                .build();
+    }
+
+    // RFC 4180: quoted when it holds a separator, quote or line break, quotes doubled
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (null == value) {
+            return;
+        }
+
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,205 @@
+package org.url.urlshortenerbe.services;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClickIngestionService {
+    private static final String INSERT_PREFIX = "INSERT INTO click (clicked_at, platform, user_agent, url_id) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?)";
+
+    @Value("${click.ingestion.capacity}")
+    private int capacity;
+
+    @Value("${click.ingestion.batch-size}")
+    private int batchSize;
+
+    @Value("${click.ingestion.flush-interval}")
+    private long flushInterval;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Honors spring.threads.virtual.enabled, so the writer moves to a virtual thread with the rest of the app
+    private final SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    // ConcurrentLinkedQueue is lock free but unbounded, the depth counter is what enforces the capacity
+    private final Queue<ClickEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private volatile boolean running;
+    private volatile Thread writer;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private String fullBatchSql;
+
+    private Counter droppedCounter;
+    private Counter failedCounter;
+    private Timer flushTimer;
+
+    public record ClickEvent(int urlId, Date clickedAt, String platform, String userAgent) {}
+
+    @PostConstruct
+    public void init() {
+        fullBatchSql = buildInsertSql(batchSize);
+
+        Gauge.builder("clicks.ingestion.queue.depth", depth, AtomicInteger::get).register(meterRegistry);
+        droppedCounter = Counter.builder("clicks.ingestion.dropped")
+                .description("Clicks rejected because the queue was full")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("clicks.ingestion.failed")
+                .description("Clicks lost because their batch insert failed")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("clicks.ingestion.flush")
+                .description("Time spent writing one batch of clicks")
+                .register(meterRegistry);
+
+        running = true;
+        taskExecutorBuilder.threadNamePrefix("click-writer-").build().execute(this::run);
+    }
+
+    // Called on the request thread, never blocks and never touches the database
+    public boolean enqueue(ClickEvent clickEvent) {
+        int size = depth.incrementAndGet();
+
+        if (size > capacity) {
+            depth.decrementAndGet();
+            droppedCounter.increment();
+            return false;
+        }
+
+        queue.offer(clickEvent);
+
+        // Wake the writer early once a full batch is waiting
+        Thread current = writer;
+        if (size == batchSize && null != current) {
+            LockSupport.unpark(current);
+        }
+
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+
+        Thread current = writer;
+        if (null != current) {
+            LockSupport.unpark(current);
+        }
+
+        stopped.await(10, TimeUnit.SECONDS);
+
+        // Whatever arrived after the last loop iteration still has to reach the database
+        flush();
+
+        log.info("Click writer stopped, {} clicks left in the queue", depth.get());
+    }
+
+    private void run() {
+        writer = Thread.currentThread();
+
+        try {
+            while (running) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushInterval));
+
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    log.error("Click writer failed to flush", e);
+                }
+            }
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void flush() {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+
+        ClickEvent clickEvent;
+        while ((clickEvent = queue.poll()) != null) {
+            depth.decrementAndGet();
+            batch.add(clickEvent);
+
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    // One multi-row INSERT per batch, the click ids are never read back so IDENTITY is not a problem here
+    private void write(List<ClickEvent> batch) {
+        String sql = batch.size() == batchSize ? fullBatchSql : buildInsertSql(batch.size());
+
+        try {
+            flushTimer.record(() -> jdbcTemplate.update(sql, (PreparedStatement ps) -> bind(ps, batch)));
+        } catch (DataAccessException e) {
+            failedCounter.increment(batch.size());
+            log.error("Could not write a batch of {} clicks", batch.size(), e);
+        }
+    }
+
+    private void bind(PreparedStatement ps, List<ClickEvent> batch) throws SQLException {
+        int index = 1;
+
+        for (ClickEvent clickEvent : batch) {
+            ps.setTimestamp(index++, new Timestamp(clickEvent.clickedAt().getTime()));
+            ps.setString(index++, clickEvent.platform());
+            ps.setString(index++, clickEvent.userAgent());
+            ps.setInt(index++, clickEvent.urlId());
+        }
+    }
+
+    private static String buildInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (INSERT_ROW.length() + 2));
+        sql.append(INSERT_PREFIX);
+
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+
+            sql.append(INSERT_ROW);
+        }
+
+        return sql.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package org.url.urlshortenerbe.services;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.url.urlshortenerbe.entities.RollupGranularity;
+import org.url.urlshortenerbe.repositories.ClickRollupRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Folds new click rows into the minute, hour and day rollups. Only the clicks past the checkpoint are read,
+// through the primary key, so the cost of a run follows the click rate and not the size of the click table
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClickRollupService {
+    private static final String CHECKPOINT = "click_rollup";
+
+    // The derived table is what lets the upsert add to the existing row instead of replacing it
+    private static final String ROLLUP_SQL =
+            """
+			INSERT INTO click_rollup (granularity, bucket_start, url_id, platform, clicks)
+			SELECT * FROM (
+				SELECT ? AS granularity, DATE_FORMAT(c.clicked_at, ?) AS bucket_start, c.url_id,
+					COALESCE(c.platform, '') AS platform, COUNT(*) AS clicks
+				FROM click c
+				WHERE c.id > ? AND c.id <= ?
+				GROUP BY 2, 3, 4
+			) AS delta
+			ON DUPLICATE KEY UPDATE clicks = click_rollup.clicks + delta.clicks
+			""";
+
+    @Value("${click.rollup.chunk-size}")
+    private long chunkSize;
+
+    // days
+    @Value("${click.rollup.minute-retention}")
+    private long minuteRetention;
+
+    // days
+    @Value("${click.rollup.hour-retention}")
+    private long hourRetention;
+
+    @Value("${click.rollup.purge-batch-size}")
+    private int purgeBatchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ClickRollupRepository clickRollupRepository;
+
+    // Max click id seen by the previous run. Ids are taken at insert but become visible at commit, so a
+    // transaction holding a lower id may still be open: only ids that were already the max a run ago are folded
+    private long previousMaxClickId;
+
+    @PostConstruct
+    public void init() {
+        // Starting from 0 backfills the rollups from the existing clicks, one chunk per transaction
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO click_rollup_checkpoint (name, last_click_id) VALUES (?, 0)", CHECKPOINT);
+    }
+
+    @Scheduled(fixedDelayString = "${click.rollup.interval}", timeUnit = TimeUnit.SECONDS)
+    public void aggregate() {
+        long startedAt = System.currentTimeMillis();
+
+        long upTo = previousMaxClickId;
+        previousMaxClickId =
+                Objects.requireNonNullElse(jdbcTemplate.queryForObject("SELECT MAX(id) FROM click", Long.class), 0L);
+
+        int chunks = 0;
+        Long lastClickId;
+        do {
+            lastClickId = transactionTemplate.execute(status -> fold(upTo));
+            if (null != lastClickId) {
+                chunks++;
+            }
+        } while (null != lastClickId && lastClickId < upTo);
+
+        if (chunks > 0) {
+            log.info("Click rollups updated up to click {} in {} ms", upTo, System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    // Hour and minute buckets are only kept for zooming into recent activity, days are kept for good
+    @Scheduled(fixedDelayString = "${click.rollup.purge-interval}", timeUnit = TimeUnit.SECONDS)
+    public void purge() {
+        purge(RollupGranularity.MINUTE, minuteRetention);
+        purge(RollupGranularity.HOUR, hourRetention);
+    }
+
+    // Returns the new checkpoint, null when there was nothing to fold
+    private Long fold(long upTo) {
+        // The row lock makes the pods take turns, each chunk is folded exactly once
+        long lastClickId = Objects.requireNonNull(jdbcTemplate.queryForObject(
+                "SELECT last_click_id FROM click_rollup_checkpoint WHERE name = ? FOR UPDATE", Long.class, CHECKPOINT));
+
+        if (lastClickId >= upTo) {
+            return null;
+        }
+
+        long to = Math.min(lastClickId + chunkSize, upTo);
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            jdbcTemplate.update(ROLLUP_SQL, granularity.name(), granularity.getBucketFormat(), lastClickId, to);
+        }
+
+        jdbcTemplate.update("UPDATE click_rollup_checkpoint SET last_click_id = ? WHERE name = ?", to, CHECKPOINT);
+
+        return to;
+    }
+
+    private void purge(RollupGranularity granularity, long retention) {
+        Date before = Date.from(Instant.now().minus(retention, ChronoUnit.DAYS));
+
+        long total = 0;
+        int deleted;
+        do {
+            deleted = clickRollupRepository.deleteChunkBefore(granularity.name(), before, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+
+        if (total > 0) {
+            log.info("Purged {} {} click rollup rows", total, granularity);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.url.urlshortenerbe.services;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.url.urlshortenerbe.utils.LongUrlDigest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Brings urls from before the dedup mode in line with it: ddl-auto adds long_url_digest but never changes the
+// type of long_url, and older rows have no digest for a repeated destination to be found by
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LongUrlDigestBackfill {
+    private static final String SELECT_SQL =
+            "SELECT id, long_url FROM url WHERE id > ? AND long_url_digest IS NULL ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_SQL =
+            "UPDATE url SET long_url_digest = ? WHERE id = ? AND long_url_digest IS NULL";
+
+    @Value("${url.dedup.backfill-batch-size}")
+    private int batchSize;
+
+    // Changing the column type rebuilds the url table, deployments run migrations/url-long-url-text.sql once
+    // instead of every pod trying it on startup
+    @Value("${url.dedup.migrate-long-url}")
+    private boolean migrateLongUrl;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Off the main thread, both steps take a while on a large table
+        taskExecutorBuilder.threadNamePrefix("digest-backfill-").build().execute(this::run);
+    }
+
+    private void run() {
+        try {
+            widenLongUrl();
+            backfill();
+        } catch (RuntimeException e) {
+            // Rows left without a digest are only missed by dedup, the next start picks them up again
+            log.error("Long url digest backfill failed", e);
+        }
+    }
+
+    private void widenLongUrl() {
+        String dataType = jdbcTemplate.queryForObject(
+                "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'url' AND COLUMN_NAME = 'long_url'",
+                String.class);
+
+        if ("text".equalsIgnoreCase(dataType)) {
+            return;
+        }
+
+        if (!migrateLongUrl) {
+            log.warn(
+                    "url.long_url is still {}, longer urls cannot be saved until migrations/url-long-url-text.sql is run",
+                    dataType);
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        jdbcTemplate.execute("ALTER TABLE url MODIFY long_url TEXT NOT NULL");
+
+        log.info("url.long_url widened from {} to TEXT in {} ms", dataType, System.currentTimeMillis() - startedAt);
+    }
+
+    // Pages on the primary key, every row is read once. Pods running it at the same time write the same digests
+    private void backfill() {
+        long startedAt = System.currentTimeMillis();
+        long total = 0;
+        int lastId = 0;
+
+        List<Object[]> updates;
+        do {
+            updates = jdbcTemplate.query(
+                    SELECT_SQL,
+                    (rs, rowNum) -> new Object[] {LongUrlDigest.of(rs.getString(2)), rs.getInt(1)},
+                    lastId,
+                    batchSize);
+
+            if (updates.isEmpty()) {
+                break;
+            }
+
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+
+            lastId = (Integer) updates.get(updates.size() - 1)[1];
+            total += updates.size();
+        } while (updates.size() == batchSize);
+
+        if (total > 0) {
+            log.info("Long url digests filled in for {} urls in {} ms", total, System.currentTimeMillis() - startedAt);
+        }
+    }
+}
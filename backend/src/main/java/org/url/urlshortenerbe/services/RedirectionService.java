@@ -3,34 +3,99 @@ package org.url.urlshortenerbe.services;
 import java.time.Instant;
 import java.util.Date;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.url.urlshortenerbe.entities.Click;
-import org.url.urlshortenerbe.entities.Url;
+import org.url.urlshortenerbe.caches.HashBloomFilter;
+import org.url.urlshortenerbe.caches.RedirectCache;
+import org.url.urlshortenerbe.caches.RedirectEntry;
+import org.url.urlshortenerbe.caches.RedirectSnapshot;
+import org.url.urlshortenerbe.entities.RedirectType;
 import org.url.urlshortenerbe.exceptions.AppException;
 import org.url.urlshortenerbe.exceptions.ErrorCode;
-import org.url.urlshortenerbe.repositories.ClickRepository;
 import org.url.urlshortenerbe.repositories.UrlRepository;
+import org.url.urlshortenerbe.services.ClickIngestionService.ClickEvent;
 
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
 public class RedirectionService {
-    private final ClickRepository clickRepository;
+    private static final String NO_STORE = "no-store";
+
+    @Value("${redirect.default-type}")
+    private RedirectType defaultRedirectType;
+
+    @Value("${redirect.max-age}")
+    private long maxAge;
+
     private final UrlRepository urlRepository;
 
-    public String getUrlAndCountClick(String hash, String referer, String userAgent) {
-        Url url = urlRepository.findByHash(hash).orElseThrow(() -> new AppException(ErrorCode.URL_NOTFOUND));
+    private final RedirectCache redirectCache;
+    private final HashBloomFilter hashBloomFilter;
+    private final RedirectSnapshot redirectSnapshot;
+    private final ClickIngestionService clickIngestionService;
+    private final ClickCounterService clickCounterService;
+
+    public record Redirect(String location, HttpStatus status, String cacheControl) {}
+
+    public Redirect getUrlAndCountClick(String hash, String referer, String userAgent) {
+        RedirectEntry redirectEntry = redirectCache.get(hash, this::loadRedirectEntry);
+
+        // Unknown hashes are mostly bots scanning, keep them cheap
+        if (null == redirectEntry || redirectEntry.deleted()) {
+            throw AppException.withoutStackTrace(ErrorCode.SHORT_URL_NOTFOUND);
+        }
+
+        Date now = Date.from(Instant.now());
+
+        if (redirectEntry.expiresAt().before(now)) {
+            throw AppException.withoutStackTrace(ErrorCode.URL_EXPIRED);
+        }
+
+        // The click is written later in a batch, the redirect does not wait for it
+        if (clickIngestionService.enqueue(new ClickEvent(redirectEntry.id(), now, referer, userAgent))) {
+            clickCounterService.increment(redirectEntry.id());
+        }
+
+        RedirectType redirectType =
+                null == redirectEntry.redirectType() ? defaultRedirectType : redirectEntry.redirectType();
+
+        return new Redirect(
+                redirectEntry.longUrl(), redirectType.getHttpStatus(), cacheControl(redirectEntry, redirectType, now));
+    }
+
+    // Permanent redirects may be reused until the link stops being valid, temporary ones never
+    private String cacheControl(RedirectEntry redirectEntry, RedirectType redirectType, Date now) {
+        if (!redirectType.isCacheable()) {
+            return NO_STORE;
+        }
+
+        long validUntil = redirectEntry.expiresAt().getTime();
+        if (null != redirectEntry.campaignEndDate()) {
+            validUntil = Math.min(validUntil, redirectEntry.campaignEndDate().getTime());
+        }
+
+        long secondsLeft = (validUntil - now.getTime()) / 1000;
+        if (secondsLeft <= 0) {
+            return NO_STORE;
+        }
+
+        return "public, max-age=" + Math.min(secondsLeft, maxAge);
+    }
 
-        Click click = Click.builder()
-                .clickedAt(Date.from(Instant.now()))
-                .userAgent(userAgent)
-                .platform(referer)
-                .url(url)
-                .build();
+    private RedirectEntry loadRedirectEntry(String hash) {
+        if (!hashBloomFilter.mightContain(hash)) {
+            return null;
+        }
 
-        clickRepository.save(click);
+        // Off-heap and local, the database is only asked about urls newer than the snapshot or changed since
+        RedirectEntry redirectEntry = redirectSnapshot.find(hash);
+        if (null != redirectEntry) {
+            return redirectEntry;
+        }
 
-        return url.getLongUrl();
+        // Deleted and expired urls are cached too, so repeated hits on them stay off the database
+        return urlRepository.findRedirectEntryByHash(hash).orElse(null);
     }
 }
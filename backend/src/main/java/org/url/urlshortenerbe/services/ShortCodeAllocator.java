@@ -0,0 +1,248 @@
+package org.url.urlshortenerbe.services;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.url.urlshortenerbe.utils.Base62Encoder;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Short codes without hashing or lookups: each pod leases a block of ids from short_code_sequence and hands them
+// out from memory. Every id maps to a distinct code of url.length characters through a keyed permutation of
+// [0, 62^length), so the codes never collide with each other and consecutive ids do not give consecutive codes
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShortCodeAllocator {
+    private static final String SEQUENCE = "short_code";
+    private static final int ROUNDS = 4;
+
+    @Value("${url.generator}")
+    private String generator;
+
+    @Value("${url.length}")
+    private int length;
+
+    @Value("${url.range.block-size}")
+    private int blockSize;
+
+    // Keys the permutation, changing it makes the codes of later ids collide with earlier ones. No default, a key
+    // published with the source would let anyone map codes back to ids
+    @Value("${url.range.secret}")
+    private Long secret;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Base62Encoder base62Encoder;
+
+    private final SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    // Not synchronized: waiting for a lease would pin a virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition leased = lock.newCondition();
+
+    private TransactionTemplate transactionTemplate;
+    private Executor leaseExecutor;
+
+    private long domain;
+    private int halfBits;
+    private long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    private long next;
+    private long limit;
+
+    // The block leased ahead, taken over once the current one runs out
+    private long pendingStart;
+    private long pendingLimit;
+
+    private boolean leasing;
+    private RuntimeException leaseFailure;
+
+    @PostConstruct
+    public void init() {
+        if (!"range".equals(generator)) {
+            return;
+        }
+
+        if (null == secret) {
+            throw new IllegalStateException("url.generator=range needs url.range.secret, set URL_RANGE_SECRET");
+        }
+
+        keyPermutation(secret);
+
+        // Its own transaction, a lease must not roll back with the url insert that triggered it
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // Leases run off the request path, a request never holds the lock while a second connection is borrowed
+        leaseExecutor =
+                taskExecutorBuilder.threadNamePrefix("short-code-lease-").build();
+    }
+
+    // Package-private for the tests
+    void keyPermutation(long secret) {
+        // 62^10 is the largest power that fits in a long, the other generators are not limited by it
+        if (length < 1 || length > 10) {
+            return;
+        }
+
+        domain = 1;
+        for (int i = 0; i < length; i++) {
+            domain *= 62;
+        }
+
+        // Feistel network over the smallest even number of bits covering the domain
+        int bits = 64 - Long.numberOfLeadingZeros(domain - 1);
+        halfBits = Math.max(1, (bits + 1) / 2);
+        halfMask = (1L << halfBits) - 1;
+
+        long seed = secret;
+        for (int i = 0; i < ROUNDS; i++) {
+            seed += 0x9e3779b97f4a7c15L;
+            roundKeys[i] = mix(seed);
+        }
+    }
+
+    public String next() {
+        if (domain == 0) {
+            throw new IllegalStateException("Range allocated short codes need a url.length between 1 and 10");
+        }
+
+        long id;
+
+        lock.lock();
+        try {
+            while (next == limit) {
+                if (pendingLimit > pendingStart) {
+                    next = pendingStart;
+                    limit = pendingLimit;
+                    pendingStart = pendingLimit = 0;
+                    break;
+                }
+
+                // Only the first block, or a burst faster than a lease, gets here. await releases the lock
+                if (!leasing) {
+                    if (leaseFailure != null) {
+                        RuntimeException failure = leaseFailure;
+                        leaseFailure = null;
+                        throw failure;
+                    }
+
+                    startLease();
+                }
+
+                leased.awaitUninterruptibly();
+            }
+
+            id = next++;
+
+            // Low watermark: the next block is leased once half of the current one is handed out
+            if (!leasing && pendingLimit == pendingStart && limit - next <= blockSize / 2) {
+                startLease();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return base62Encoder.encode(permute(id), length);
+    }
+
+    // Called holding the lock
+    private void startLease() {
+        leasing = true;
+        leaseExecutor.execute(this::leaseAhead);
+    }
+
+    private void leaseAhead() {
+        long start = 0;
+        RuntimeException failure = null;
+
+        try {
+            start = lease();
+        } catch (RuntimeException e) {
+            log.error("Leasing short code ids failed", e);
+            failure = e;
+        }
+
+        lock.lock();
+        try {
+            if (failure == null) {
+                pendingStart = start;
+                pendingLimit = Math.min(start + blockSize, domain);
+            } else {
+                // Thrown to the next caller that runs out, which then retries the lease
+                leaseFailure = failure;
+            }
+
+            leasing = false;
+            leased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The ids of a block abandoned by a stopped pod are simply never used
+    private long lease() {
+        long start = Objects.requireNonNull(transactionTemplate.execute(status -> {
+            jdbcTemplate.update("INSERT IGNORE INTO short_code_sequence (name, next_value) VALUES (?, 0)", SEQUENCE);
+
+            long value = Objects.requireNonNull(jdbcTemplate.queryForObject(
+                    "SELECT next_value FROM short_code_sequence WHERE name = ? FOR UPDATE", Long.class, SEQUENCE));
+
+            jdbcTemplate.update(
+                    "UPDATE short_code_sequence SET next_value = ? WHERE name = ?", value + blockSize, SEQUENCE);
+
+            return value;
+        }));
+
+        if (start >= domain) {
+            throw new IllegalStateException("All " + domain + " short codes of length " + length + " are leased");
+        }
+
+        log.info("Leased short code ids {} to {}", start, Math.min(start + blockSize, domain) - 1);
+
+        return start;
+    }
+
+    // A Feistel network is a bijection on [0, 2^(2 * halfBits)). Walking the cycle until the value falls back
+    // inside the domain restricts it to a bijection on [0, domain), which is at least a quarter of that range
+    long permute(long value) {
+        do {
+            long left = value >>> halfBits;
+            long right = value & halfMask;
+
+            for (long roundKey : roundKeys) {
+                long f = mix(right ^ roundKey) & halfMask;
+                long previousRight = right;
+
+                right = left ^ f;
+                left = previousRight;
+            }
+
+            value = (left << halfBits) | right;
+        } while (value >= domain);
+
+        return value;
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
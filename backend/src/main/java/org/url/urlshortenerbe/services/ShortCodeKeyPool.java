@@ -0,0 +1,240 @@
+package org.url.urlshortenerbe.services;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Random short codes generated ahead of time into short_code_key, already checked against the url table, so a
+// guest link takes one from memory without hashing or a collision query. Pods claim them in batches
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShortCodeKeyPool {
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    // Marks a batch of free keys as taken by this claim in one statement, no two claims can get the same row
+    private static final String CLAIM_SQL = "UPDATE short_code_key SET claimed_by = ? WHERE claimed_by IS NULL LIMIT ?";
+
+    @Value("${url.key-pool.enabled}")
+    private boolean enabled;
+
+    @Value("${url.length}")
+    private int length;
+
+    // free keys in the table the refill tops up to
+    @Value("${url.key-pool.target-size}")
+    private int targetSize;
+
+    // free keys in the table below which a refill starts
+    @Value("${url.key-pool.min-size}")
+    private int minSize;
+
+    @Value("${url.key-pool.claim-size}")
+    private int claimSize;
+
+    @Value("${url.key-pool.refill-batch-size}")
+    private int refillBatchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Queue<String> keys = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger localSize = new AtomicInteger();
+
+    // Last count of free keys in the table, refreshed by every refill run
+    private final AtomicLong available = new AtomicLong();
+
+    // Claims wait on MySQL, a monitor would pin virtual threads
+    private final ReentrantLock claimLock = new ReentrantLock();
+
+    private final SecureRandom random = new SecureRandom();
+
+    private TransactionTemplate transactionTemplate;
+
+    private Counter emptyCounter;
+
+    @PostConstruct
+    public void init() {
+        // Claims commit on their own, not with the url insert that triggered them, so their rows are not kept
+        // locked for the rest of that request
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Gauge.builder("url.key-pool.local", localSize, AtomicInteger::get)
+                .description("Claimed keys held in memory by this pod")
+                .register(meterRegistry);
+        Gauge.builder("url.key-pool.available", available, AtomicLong::get)
+                .description("Free keys left in short_code_key")
+                .register(meterRegistry);
+        emptyCounter = Counter.builder("url.key-pool.empty")
+                .description("Creations that found no key and fell back to the generator")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // null when the pool is dry, the caller then generates a code the usual way
+    public String poll() {
+        String key = keys.poll();
+
+        if (null == key) {
+            claim();
+            key = keys.poll();
+        }
+
+        if (null == key) {
+            emptyCounter.increment();
+            return null;
+        }
+
+        // Claim the next batch before this one runs out
+        if (localSize.decrementAndGet() < claimSize / 4) {
+            claim();
+        }
+
+        return key;
+    }
+
+    @Scheduled(fixedDelayString = "${url.key-pool.refill-interval}", timeUnit = TimeUnit.SECONDS)
+    public void refill() {
+        if (!enabled) {
+            return;
+        }
+
+        long free = countFree();
+        available.set(free);
+
+        if (free >= minSize) {
+            return;
+        }
+
+        log.info("Short code key pool at {} free keys, refilling to {}", free, targetSize);
+
+        long startedAt = System.currentTimeMillis();
+
+        // Every pod may run this at the same time, INSERT IGNORE keeps it safe and the overshoot is bounded
+        int inserted = 0;
+        while (free + inserted < targetSize) {
+            int added = insertBatch(Math.min(refillBatchSize, (int) (targetSize - free - inserted)));
+
+            // The keyspace is too full for random codes to find room
+            if (added == 0) {
+                log.warn("Short code key pool refill made no progress, {} keys added", inserted);
+                break;
+            }
+
+            inserted += added;
+        }
+
+        available.set(free + inserted);
+
+        log.info("Added {} keys to the short code key pool in {} ms", inserted, System.currentTimeMillis() - startedAt);
+    }
+
+    private void claim() {
+        // Another thread is already claiming, it will fill the queue for everyone
+        if (!claimLock.tryLock()) {
+            return;
+        }
+
+        try {
+            String token = UUID.randomUUID().toString();
+
+            // Rows are removed once read, the table only ever holds free keys and in-flight claims
+            List<String> claimed = transactionTemplate.execute(status -> {
+                if (jdbcTemplate.update(CLAIM_SQL, token, claimSize) == 0) {
+                    return List.<String>of();
+                }
+
+                List<String> hashes = jdbcTemplate.queryForList(
+                        "SELECT hash FROM short_code_key WHERE claimed_by = ?", String.class, token);
+                jdbcTemplate.update("DELETE FROM short_code_key WHERE claimed_by = ?", token);
+
+                return hashes;
+            });
+
+            if (null != claimed) {
+                keys.addAll(claimed);
+                localSize.addAndGet(claimed.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not claim short code keys", e);
+        } finally {
+            claimLock.unlock();
+        }
+    }
+
+    private int insertBatch(int size) {
+        Set<String> candidates = new HashSet<>();
+        while (candidates.size() < size) {
+            candidates.add(randomKey());
+        }
+
+        // Never hand out a code a url already has
+        candidates.removeAll(namedParameterJdbcTemplate.queryForList(
+                "SELECT hash FROM url WHERE hash IN (:hashes)",
+                new MapSqlParameterSource("hashes", candidates),
+                String.class));
+
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int[] counts = jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO short_code_key (hash, created_at) VALUES (?, ?)",
+                candidates.stream().map(hash -> new Object[] {hash, now}).toList());
+
+        // Connector/J may report SUCCESS_NO_INFO (-2) for rewritten batches, count those as inserted
+        int inserted = 0;
+        for (int count : counts) {
+            inserted += count == 0 ? 0 : 1;
+        }
+
+        return inserted;
+    }
+
+    private long countFree() {
+        Long count =
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM short_code_key WHERE claimed_by IS NULL", Long.class);
+
+        return null == count ? 0 : count;
+    }
+
+    private String randomKey() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+
+        return new String(chars);
+    }
+}
@@ -0,0 +1,164 @@
+package org.url.urlshortenerbe.services;
+
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.url.urlshortenerbe.entities.Url;
+import org.url.urlshortenerbe.repositories.UrlRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Url search through an InnoDB FULLTEXT index with the ngram parser, an inverted index from every n characters
+// of hash and long_url to the rows holding them. A query is looked up as the phrase of its n-grams and ranked
+// by relevance, instead of a LIKE '%q%' scan of the whole table
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UrlSearchService {
+    private static final String INDEX_NAME = "url_search_ngram";
+
+    // Must match ngram_token_size on the MySQL server, shorter queries cannot use the index
+    @Value("${url.search.ngram-size}")
+    private int ngramSize;
+
+    @Value("${url.search.limit}")
+    private int limit;
+
+    // Adding the first FULLTEXT index rebuilds the url table, deployments run migrations/url-search-index.sql once
+    // instead of every pod trying it on startup
+    @Value("${url.search.create-index}")
+    private boolean createIndex;
+
+    private final UrlRepository urlRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    // Until the index exists searches fall back to the LIKE scans
+    private volatile boolean indexReady;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Off the main thread, building the index on a large table takes a while
+        taskExecutorBuilder.threadNamePrefix("search-index-").build().execute(this::ensureIndex);
+    }
+
+    public List<Url> search(String q) {
+        String term = q.trim();
+
+        if (!indexReady) {
+            return urlRepository.searchUrls(term, PageRequest.of(0, limit));
+        }
+
+        Map<Integer, Url> urls = new LinkedHashMap<>();
+
+        // The admin search also finds the links of a user by id
+        urlRepository.findAllByUserId(term, PageRequest.of(0, limit)).forEach(url -> urls.put(url.getId(), url));
+
+        if (term.length() < ngramSize) {
+            urlRepository
+                    .findAllByHashStartingWith(term, Limit.of(limit))
+                    .forEach(url -> urls.putIfAbsent(url.getId(), url));
+        } else {
+            urlRepository.searchByNgrams(phrase(term), limit).forEach(url -> urls.putIfAbsent(url.getId(), url));
+        }
+
+        return urls.values().stream().limit(limit).toList();
+    }
+
+    public List<Url> searchWithinUserId(String userId, String q) {
+        String term = q.trim();
+
+        if (!indexReady) {
+            return urlRepository.searchUrlsWithinUserId(userId, term, PageRequest.of(0, limit));
+        }
+
+        // Too short for an n-gram, only a hash prefix can be looked up
+        if (term.length() < ngramSize) {
+            return urlRepository.findAllByUserIdAndHashStartingWith(userId, term, Limit.of(limit));
+        }
+
+        return urlRepository.searchByNgramsWithinUserId(userId, phrase(term), limit);
+    }
+
+    public List<Url> searchWithinUserIdAndCampaignId(String userId, String campaignId, String q) {
+        String term = q.trim();
+
+        if (!indexReady) {
+            return urlRepository.searchUrlsWithinUserIdAndCampaignId(
+                    userId, campaignId, term, PageRequest.of(0, limit));
+        }
+
+        if (term.length() < ngramSize) {
+            return urlRepository.findAllByUserIdAndCampaignIdAndHashStartingWith(
+                    userId, campaignId, term, Limit.of(limit));
+        }
+
+        return urlRepository.searchByNgramsWithinUserIdAndCampaignId(userId, campaignId, phrase(term), limit);
+    }
+
+    private void ensureIndex() {
+        try {
+            if (!indexExists() && createIndex) {
+                long startedAt = System.currentTimeMillis();
+
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        // With stopwords on, the ngram parser drops every n-gram containing one, "a" included
+                        statement.execute("SET SESSION innodb_ft_enable_stopword = OFF");
+                        statement.execute("ALTER TABLE url ADD FULLTEXT INDEX " + INDEX_NAME
+                                + " (hash, long_url) WITH PARSER ngram");
+                    } finally {
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("SET SESSION innodb_ft_enable_stopword = ON");
+                        }
+                    }
+                    return null;
+                });
+
+                log.info("Url search index created in {} ms", System.currentTimeMillis() - startedAt);
+            }
+        } catch (RuntimeException e) {
+            // Most likely another pod created it at the same time
+            log.warn("Could not create the url search index", e);
+        }
+
+        indexReady = indexExists();
+
+        if (!indexReady) {
+            log.warn(
+                    "Url search index {} missing, searches scan the url table until migrations/url-search-index.sql is run",
+                    INDEX_NAME);
+        }
+    }
+
+    private boolean indexExists() {
+        Integer count = jdbcTemplate.queryForObject(
+                """
+				SELECT COUNT(*) FROM information_schema.statistics
+				WHERE table_schema = DATABASE() AND table_name = 'url' AND index_name = ?
+				""",
+                Integer.class,
+                INDEX_NAME);
+
+        return null != count && count > 0;
+    }
+
+    // A quoted phrase matches the n-grams of the term in sequence, the same rows as a substring match. Quotes
+    // inside would end the phrase
+    private String phrase(String term) {
+        return "\"" + term.replace("\"", " ") + "\"";
+    }
+}
@@ -1,26 +1,39 @@
 package org.url.urlshortenerbe.services;
 
-import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.url.urlshortenerbe.caches.CacheInvalidationFeed;
+import org.url.urlshortenerbe.caches.HashBloomFilter;
+import org.url.urlshortenerbe.caches.PageCountCache;
+import org.url.urlshortenerbe.caches.UrlDedupCache;
 import org.url.urlshortenerbe.dtos.requests.UrlCreationRequest;
 import org.url.urlshortenerbe.dtos.requests.UrlUpdateRequest;
+import org.url.urlshortenerbe.dtos.responses.BulkUrlCreationResponse;
+import org.url.urlshortenerbe.dtos.responses.CampaignStatsResponse;
 import org.url.urlshortenerbe.dtos.responses.ClickResponse;
+import org.url.urlshortenerbe.dtos.responses.ClickStatsResponse;
+import org.url.urlshortenerbe.dtos.responses.ErrorResponse;
 import org.url.urlshortenerbe.dtos.responses.PageResponse;
 import org.url.urlshortenerbe.dtos.responses.UrlResponse;
 import org.url.urlshortenerbe.entities.Campaign;
 import org.url.urlshortenerbe.entities.Click;
+import org.url.urlshortenerbe.entities.RollupGranularity;
 import org.url.urlshortenerbe.entities.Url;
 import org.url.urlshortenerbe.entities.User;
 import org.url.urlshortenerbe.exceptions.AppException;
@@ -28,10 +41,15 @@ import org.url.urlshortenerbe.exceptions.ErrorCode;
 import org.url.urlshortenerbe.mappers.ClickMapper;
 import org.url.urlshortenerbe.mappers.UrlMapper;
 import org.url.urlshortenerbe.repositories.CampaignRepository;
+import org.url.urlshortenerbe.repositories.ClickCounterShardRepository;
 import org.url.urlshortenerbe.repositories.ClickRepository;
+import org.url.urlshortenerbe.repositories.ClickRollupRepository;
 import org.url.urlshortenerbe.repositories.UrlRepository;
 import org.url.urlshortenerbe.repositories.UserRepository;
 import org.url.urlshortenerbe.utils.Base62Encoder;
+import org.url.urlshortenerbe.utils.LongUrlDigest;
+import org.url.urlshortenerbe.utils.OffsetLimitPageable;
+import org.url.urlshortenerbe.utils.PageCursor;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -40,30 +58,80 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @RequiredArgsConstructor
 public class UrlService {
+    private static final String INSERT_PREFIX =
+            "INSERT INTO url (long_url, long_url_digest, created_at, expires_at, hash, deleted, click_count, redirect_type, user_id, campaign_id) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, FALSE, 0, ?, ?, ?)";
+
     @Value("${url.length}")
     private int hashLength;
 
     @Value("${url.expiration-time}")
     private int expirationTime;
 
+    // hash: MD5 of the long url, range: ids leased in blocks and permuted into codes
+    @Value("${url.generator}")
+    private String generator;
+
+    // Users opt in on their profile
+    @Value("${url.dedup.guests}")
+    private boolean dedupGuests;
+
+    @Value("${url.bulk.max-size}")
+    private int bulkMaxSize;
+
+    @Value("${url.bulk.batch-size}")
+    private int bulkBatchSize;
+
+    @Value("${click.rollup.max-buckets}")
+    private int maxStatsBuckets;
+
+    @Value("${stats.max-limit}")
+    private int maxStatsLimit;
+
     private final UserRepository userRepository;
     private final CampaignRepository campaignRepository;
     private final UrlRepository urlRepository;
     private final ClickRepository clickRepository;
+    private final ClickRollupRepository clickRollupRepository;
+    private final ClickCounterShardRepository clickCounterShardRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AuthorizationService authorizationService;
 
     private final UrlMapper urlMapper;
     private final ClickMapper clickMapper;
 
     private final Base62Encoder base62Encoder;
+    private final ShortCodeAllocator shortCodeAllocator;
+    private final ShortCodeKeyPool shortCodeKeyPool;
+
+    private final HashBloomFilter hashBloomFilter;
+    private final CacheInvalidationFeed cacheInvalidationFeed;
+    private final PageCountCache pageCountCache;
+    private final UrlDedupCache urlDedupCache;
+
+    private final ClickCounterService clickCounterService;
+    private final ClickExportService clickExportService;
+    private final UrlSearchService urlSearchService;
 
     // Create url for guest only
+    @Transactional
     public UrlResponse createForGuest(UrlCreationRequest urlCreationRequest) throws NoSuchAlgorithmException {
+        UrlResponse existing = dedupGuests ? findDuplicate(null, urlCreationRequest) : null;
+
+        if (null != existing) {
+            existing.setDeleted(null);
+            return existing;
+        }
+
         // longUrl, alias, userid
-        Url url = create(urlCreationRequest);
+        Url url = create(urlCreationRequest, true);
         url.setUser(null);
 
         // Save url
-        url = urlRepository.save(url);
+        url = saveUrl(url);
+        cacheInvalidationFeed.publish(url.getHash());
 
         UrlResponse urlResponse = urlMapper.toUrlResponse(url);
         urlResponse.setDeleted(null);
@@ -71,6 +139,7 @@ public class UrlService {
         return urlResponse;
     }
 
+    @Transactional
     public UrlResponse createWithUserId(String userId, UrlCreationRequest urlCreationRequest)
             throws NoSuchAlgorithmException {
         User user = getCorrectUser(userId);
@@ -79,14 +148,22 @@ public class UrlService {
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         }
 
-        Url url = create(urlCreationRequest);
+        UrlResponse existing = user.isDedupUrls() ? findDuplicate(userId, urlCreationRequest) : null;
+
+        if (null != existing) {
+            return existing;
+        }
+
+        Url url = create(urlCreationRequest, false);
         url.setUser(user);
 
-        url = urlRepository.save(url);
+        url = saveUrl(url);
+        cacheInvalidationFeed.publish(url.getHash());
 
         return urlMapper.toUrlResponse(url);
     }
 
+    @Transactional
     public UrlResponse createWithCampaignIdAndUserId(
             String campaignId, String userId, UrlCreationRequest urlCreationRequest) throws NoSuchAlgorithmException {
         User user = getCorrectUser(userId);
@@ -104,125 +181,367 @@ public class UrlService {
             throw new AppException(ErrorCode.CAMPAIGN_NOTFOUND);
         }
 
-        Url url = create(urlCreationRequest);
+        Url url = create(urlCreationRequest, false);
         url.setUser(user);
         url.setCampaign(campaign);
         url.setExpiresAt(campaign.getEndDate());
 
-        url = urlRepository.save(url);
+        url = saveUrl(url);
+        cacheInvalidationFeed.publish(url.getHash());
 
         return urlMapper.toUrlResponse(url);
     }
 
-    public PageResponse<UrlResponse> getAll(int page, int size, String type) {
-        Pageable pageable = PageRequest.of(page - 1, size);
+    // Authorizes once, generates the codes in parallel, checks aliases and candidates with one query per round and
+    // writes multi-row INSERTs. A failing item is reported in its result and does not stop the others
+    @Transactional
+    public BulkUrlCreationResponse createBulkWithCampaignIdAndUserId(
+            String campaignId, String userId, List<UrlCreationRequest> urlCreationRequests) {
+        if (urlCreationRequests.isEmpty() || urlCreationRequests.size() > bulkMaxSize) {
+            throw new AppException(ErrorCode.BULK_SIZE_INVALID);
+        }
+
+        User user = getCorrectUser(userId);
+
+        if (null == user) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+
+        Campaign campaign = campaignRepository
+                .findById(campaignId)
+                .orElseThrow(() -> new AppException(ErrorCode.CAMPAIGN_NOTFOUND));
+
+        // Handle the case when campaign is deleted
+        if (campaign.getDeleted()) {
+            throw new AppException(ErrorCode.CAMPAIGN_NOTFOUND);
+        }
+
+        int size = urlCreationRequests.size();
+        String[] hashes = new String[size];
+        ErrorCode[] errors = new ErrorCode[size];
+
+        // Every hash handed out in this request, a custom alias repeated in it fails like one already stored
+        Set<String> reserved = new HashSet<>();
+        List<Integer> generated = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            UrlCreationRequest urlCreationRequest = urlCreationRequests.get(i);
+
+            if (null == urlCreationRequest
+                    || null == urlCreationRequest.getLongUrl()
+                    || urlCreationRequest.getLongUrl().isBlank()) {
+                errors[i] = ErrorCode.URL_REQUIRED;
+                continue;
+            }
+
+            if (urlCreationRequest.getLongUrl().length() > UrlCreationRequest.MAX_LONG_URL_LENGTH) {
+                errors[i] = ErrorCode.URL_TOO_LONG;
+                continue;
+            }
+
+            String alias = null == urlCreationRequest.getAlias()
+                    ? ""
+                    : urlCreationRequest.getAlias().trim();
+
+            if (alias.isEmpty()) {
+                generated.add(i);
+            } else if (reserved.add(alias)) {
+                hashes[i] = alias;
+            } else {
+                errors[i] = ErrorCode.ALIAS_EXISTED;
+            }
+        }
+
+        Set<String> existing = findExistingHashes(reserved);
+        for (int i = 0; i < size; i++) {
+            if (null != hashes[i] && existing.contains(hashes[i])) {
+                hashes[i] = null;
+                errors[i] = ErrorCode.ALIAS_EXISTED;
+            }
+        }
+
+        // Collisions are rare, so after the first round only a handful of items go around again
+        List<Integer> pending = generated;
+        while (!pending.isEmpty()) {
+            generateCandidates(pending, urlCreationRequests, hashes);
+
+            List<Integer> collided = new ArrayList<>();
+            List<Integer> unsure = new ArrayList<>();
+
+            for (int i : pending) {
+                if (!reserved.add(hashes[i])) {
+                    collided.add(i);
+                } else if (hashBloomFilter.mightContain(hashes[i])) {
+                    unsure.add(i);
+                }
+            }
+
+            Set<String> taken =
+                    findExistingHashes(unsure.stream().map(i -> hashes[i]).toList());
+            for (int i : unsure) {
+                if (taken.contains(hashes[i])) {
+                    collided.add(i);
+                }
+            }
+
+            pending = collided;
+        }
+
+        Date now = Date.from(Instant.now());
+        Url[] urls = new Url[size];
+        List<Integer> inserting = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            if (null != errors[i]) {
+                continue;
+            }
+
+            Url url = urlMapper.toUrl(urlCreationRequests.get(i));
+            url.setLongUrl(url.getLongUrl().trim());
+            url.setLongUrlDigest(LongUrlDigest.of(url.getLongUrl()));
+            url.setHash(hashes[i]);
+            url.setCreatedAt(now);
+            url.setExpiresAt(campaign.getEndDate());
+            url.setUser(user);
+            url.setCampaign(campaign);
+
+            urls[i] = url;
+            inserting.add(i);
+        }
+
+        // A code taken since it was checked, by another pod or a request racing this one, only fails its own chunk:
+        // MySQL rolls back the failed statement alone. The chunk is retried row by row to find the taken codes, a
+        // plain SELECT in this transaction may not see the row that got in the way
+        Set<Integer> generatedItems = new HashSet<>(generated);
+        while (!inserting.isEmpty()) {
+            List<Integer> collided = new ArrayList<>();
+
+            for (int from = 0; from < inserting.size(); from += bulkBatchSize) {
+                List<Integer> chunk = inserting.subList(from, Math.min(from + bulkBatchSize, inserting.size()));
+
+                try {
+                    insertUrls(chunk.stream().map(i -> urls[i]).toList());
+                } catch (DuplicateKeyException e) {
+                    for (int i : chunk) {
+                        try {
+                            insertUrls(List.of(urls[i]));
+                        } catch (DuplicateKeyException taken) {
+                            if (generatedItems.contains(i)) {
+                                collided.add(i);
+                            } else {
+                                errors[i] = ErrorCode.ALIAS_EXISTED;
+                            }
+                        }
+                    }
+                }
+            }
+
+            // Generated codes go round the salt loop again, like a collision found before the insert
+            if (!collided.isEmpty()) {
+                generateCandidates(collided, urlCreationRequests, hashes);
+                collided.forEach(i -> urls[i].setHash(hashes[i]));
+            }
+
+            inserting = collided;
+        }
+
+        List<String> created = new ArrayList<>();
+        List<BulkUrlCreationResponse.Result> results = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            if (null != errors[i]) {
+                results.add(new BulkUrlCreationResponse.Result(
+                        i,
+                        null,
+                        ErrorResponse.builder()
+                                .code(errors[i].getCode())
+                                .message(errors[i].getMessage())
+                                .build()));
+                continue;
+            }
+
+            created.add(urls[i].getHash());
+            results.add(new BulkUrlCreationResponse.Result(i, urlMapper.toUrlResponse(urls[i]), null));
+        }
+
+        cacheInvalidationFeed.publish(created);
+
+        return BulkUrlCreationResponse.builder()
+                .created(created.size())
+                .failed(size - created.size())
+                .results(results)
+                .build();
+    }
+
+    // Numbered pages, or with a cursor (empty for the first page) pages that cost the same at any depth
+    public PageResponse<UrlResponse> getAll(int page, int size, String type, String cursor, boolean count) {
+        PageResponse.PageResponseBuilder<UrlResponse> response = PageResponse.builder();
+        List<Url> urls;
+
+        if (null == cursor) {
+            Pageable pageable = PageRequest.of(page - 1, size);
 
-        Page<Url> urls =
-                switch (type) {
-                    case "not_deleted" -> urlRepository.findAllByDeletedIs(false, pageable);
-                    case "deleted" -> urlRepository.findAllByDeletedIs(true, pageable);
-                    default -> urlRepository.findAll(pageable);
-                };
+            Page<Url> urlPage =
+                    switch (type) {
+                        case "not_deleted" -> urlRepository.findAllByDeletedIs(false, pageable);
+                        case "deleted" -> urlRepository.findAllByDeletedIs(true, pageable);
+                        default -> urlRepository.findAll(pageable);
+                    };
 
-        List<UrlResponse> urlResponseList = urls.getContent().stream()
+            urls = urlPage.getContent();
+            response.page(page).records(urlPage.getTotalElements()).totalPages(urlPage.getTotalPages());
+        } else {
+            Boolean deleted = deletedFilter(type);
+            PageCursor.Slice<Url> slice = PageCursor.slice(
+                    urlRepository.findAllAfterId(PageCursor.decodeInt(cursor), deleted, Limit.of(size + 1)),
+                    size,
+                    Url::getId);
+
+            urls = slice.items();
+            response.nextCursor(slice.nextCursor());
+
+            if (count) {
+                response.records(pageCountCache.get("urls:" + deleted, () -> urlRepository.countByDeleted(deleted)));
+            }
+        }
+
+        Map<Integer, Long> clickCounts = clickCounterService.getClickCounts(urls);
+
+        List<UrlResponse> urlResponseList = urls.stream()
                 .map(url -> {
                     UrlResponse urlResponse = urlMapper.toUrlResponse(url);
-                    urlResponse.setClickCount(clickRepository.countByUrlId(url.getId()));
+                    urlResponse.setClickCount(clickCounts.get(url.getId()));
                     return urlResponse;
                 })
                 .toList();
 
-        return PageResponse.<UrlResponse>builder()
-                .items(urlResponseList)
-                .page(page)
-                .records(urls.getTotalElements())
-                .totalPages(urls.getTotalPages())
-                .build();
+        return response.items(urlResponseList).build();
     }
 
-    public PageResponse<UrlResponse> getAllByUserId(String userId, int page, int size, String type) {
+    public PageResponse<UrlResponse> getAllByUserId(
+            String userId, int page, int size, String type, String cursor, boolean count) {
         User user = getCorrectUser(userId);
 
         if (null == user) {
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         }
 
-        Pageable pageable = PageRequest.of(page - 1, size);
+        PageResponse.PageResponseBuilder<UrlResponse> response = PageResponse.builder();
+        List<Url> urls;
+
+        if (null == cursor) {
+            Pageable pageable = PageRequest.of(page - 1, size);
+
+            Page<Url> urlPage =
+                    switch (type) {
+                        case ("not_deleted") -> urlRepository.findAllByUserIdAndDeletedIs(userId, false, pageable);
+                        case ("deleted") -> urlRepository.findAllByUserIdAndDeletedIs(userId, true, pageable);
+                        default -> urlRepository.findAllByUserId(userId, pageable);
+                    };
+
+            urls = urlPage.getContent();
+            response.page(page).records(urlPage.getTotalElements()).totalPages(urlPage.getTotalPages());
+        } else {
+            Boolean deleted = deletedFilter(type);
+            PageCursor.Slice<Url> slice = PageCursor.slice(
+                    urlRepository.findAllByUserIdAfterId(
+                            userId, PageCursor.decodeInt(cursor), deleted, Limit.of(size + 1)),
+                    size,
+                    Url::getId);
+
+            urls = slice.items();
+            response.nextCursor(slice.nextCursor());
+
+            if (count) {
+                response.records(pageCountCache.get(
+                        "urls:" + userId + ":" + deleted,
+                        () -> urlRepository.countByUserIdAndDeleted(userId, deleted)));
+            }
+        }
 
-        Page<Url> urls =
-                switch (type) {
-                    case ("not_deleted") -> urlRepository.findAllByUserIdAndDeletedIs(userId, false, pageable);
-                    case ("deleted") -> urlRepository.findAllByUserIdAndDeletedIs(userId, true, pageable);
-                    default -> urlRepository.findAllByUserId(userId, pageable);
-                };
+        Map<Integer, Long> clickCounts = clickCounterService.getClickCounts(urls);
 
-        List<UrlResponse> urlResponseList = urls.getContent().stream()
+        List<UrlResponse> urlResponseList = urls.stream()
                 .map((url) -> {
                     UrlResponse urlResponse = urlMapper.toUrlResponse(url);
                     urlResponse.setUserId(null);
                     urlResponse.setCampaignId(null);
 
-                    user.getRoles().forEach(role -> {
-                        if (role.getName().equals("MANAGER") || role.getName().equals("ADMIN")) {
-                            urlResponse.setClickCount(clickRepository.countByUrlId(url.getId()));
-                        }
-                    });
+                    if (authorizationService.hasAnyRole("MANAGER", "ADMIN")) {
+                        urlResponse.setClickCount(clickCounts.get(url.getId()));
+                    }
 
                     return urlResponse;
                 })
                 .toList();
 
-        return PageResponse.<UrlResponse>builder()
-                .items(urlResponseList)
-                .page(page)
-                .records(urls.getTotalElements())
-                .totalPages(urls.getTotalPages())
-                .build();
+        return response.items(urlResponseList).build();
     }
 
     public PageResponse<UrlResponse> getAllByCampaignIdAndUserId(
-            String campaignId, String userId, int page, int size, String type) {
+            String campaignId, String userId, int page, int size, String type, String cursor, boolean count) {
         User user = getCorrectUser(userId);
 
         if (null == user) {
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         }
 
-        Pageable pageable = PageRequest.of(page - 1, size);
+        PageResponse.PageResponseBuilder<UrlResponse> response = PageResponse.builder();
+        List<Url> urls;
+
+        if (null == cursor) {
+            Pageable pageable = PageRequest.of(page - 1, size);
+
+            Page<Url> urlPage =
+                    switch (type) {
+                        case ("not_deleted") -> urlRepository.findAllByCampaignIdAndUserIdAndDeletedIs(
+                                campaignId, userId, false, pageable);
+                        case ("deleted") -> urlRepository.findAllByCampaignIdAndUserIdAndDeletedIs(
+                                campaignId, userId, true, pageable);
+                        default -> urlRepository.findAllByCampaignIdAndUserId(campaignId, userId, pageable);
+                    };
+
+            urls = urlPage.getContent();
+            response.page(page).records(urlPage.getTotalElements()).totalPages(urlPage.getTotalPages());
+        } else {
+            Boolean deleted = deletedFilter(type);
+            PageCursor.Slice<Url> slice = PageCursor.slice(
+                    urlRepository.findAllByCampaignIdAndUserIdAfterId(
+                            campaignId, userId, PageCursor.decodeInt(cursor), deleted, Limit.of(size + 1)),
+                    size,
+                    Url::getId);
+
+            urls = slice.items();
+            response.nextCursor(slice.nextCursor());
+
+            if (count) {
+                response.records(pageCountCache.get(
+                        "urls:" + campaignId + ":" + userId + ":" + deleted,
+                        () -> urlRepository.countByCampaignIdAndUserIdAndDeleted(campaignId, userId, deleted)));
+            }
+        }
 
-        Page<Url> urls =
-                switch (type) {
-                    case ("not_deleted") -> urlRepository.findAllByCampaignIdAndUserIdAndDeletedIs(
-                            campaignId, userId, false, pageable);
-                    case ("deleted") -> urlRepository.findAllByCampaignIdAndUserIdAndDeletedIs(
-                            campaignId, userId, true, pageable);
-                    default -> urlRepository.findAllByCampaignIdAndUserId(campaignId, userId, pageable);
-                };
+        Map<Integer, Long> clickCounts = clickCounterService.getClickCounts(urls);
 
-        List<UrlResponse> urlResponseList = urls.getContent().stream()
+        List<UrlResponse> urlResponseList = urls.stream()
                 .map((url) -> {
                     UrlResponse urlResponse = urlMapper.toUrlResponse(url);
                     urlResponse.setCampaignId(null);
                     urlResponse.setUserId(null);
-                    urlResponse.setClickCount(clickRepository.countByUrlId(url.getId()));
+                    urlResponse.setClickCount(clickCounts.get(url.getId()));
 
                     return urlResponse;
                 })
                 .toList();
 
-        return PageResponse.<UrlResponse>builder()
-                .items(urlResponseList)
-                .page(page)
-                .records(urls.getTotalElements())
-                .totalPages(urls.getTotalPages())
-                .build();
+        return response.items(urlResponseList).build();
     }
 
     public UrlResponse getOne(String hash) {
         Url url = getUrlByHash(hash);
 
         UrlResponse urlResponse = urlMapper.toUrlResponse(url);
-        urlResponse.setClickCount(clickRepository.countByUrlId(url.getId()));
+        urlResponse.setClickCount(clickCounterService.getClickCount(url));
 
         return urlResponse;
     }
@@ -244,11 +563,9 @@ public class UrlService {
         urlResponse.setUserId(null);
         urlResponse.setCampaignId(null);
 
-        user.getRoles().forEach(role -> {
-            if (role.getName().equals("MANAGER") || role.getName().equals("ADMIN")) {
-                urlResponse.setClickCount(clickRepository.countByUrlId(url.getId()));
-            }
-        });
+        if (authorizationService.hasAnyRole("MANAGER", "ADMIN")) {
+            urlResponse.setClickCount(clickCounterService.getClickCount(url));
+        }
 
         return urlResponse;
     }
@@ -272,20 +589,30 @@ public class UrlService {
 
         urlResponse.setUserId(null);
         urlResponse.setCampaignId(null);
-        urlResponse.setClickCount(clickRepository.countByUrlId(url.getId()));
+        urlResponse.setClickCount(clickCounterService.getClickCount(url));
 
         return urlResponse;
     }
 
+    @Transactional
     public UrlResponse update(String hash, UrlUpdateRequest urlUpdateRequest) {
         Url url = getUrlByHash(hash);
 
+        urlMapper.updateUrl(url, urlUpdateRequest);
+
         // set new alias to it
         url.setHash(urlUpdateRequest.getAlias());
+        hashBloomFilter.put(url.getHash());
+
+        url = saveUrl(url);
+
+        // The old alias must stop resolving on every pod, the new one must pass their Bloom filters
+        cacheInvalidationFeed.publish(hash, url.getHash());
 
-        return urlMapper.toUrlResponse(urlRepository.save(url));
+        return urlMapper.toUrlResponse(url);
     }
 
+    @Transactional
     public UrlResponse updateOneByHashAndUserId(String hash, String userId, UrlUpdateRequest urlUpdateRequest) {
         User user = getCorrectUser(userId);
 
@@ -299,16 +626,23 @@ public class UrlService {
 
         urlMapper.updateUrl(url, urlUpdateRequest);
         url.setHash(urlUpdateRequest.getAlias());
+        hashBloomFilter.put(url.getHash());
+
+        url = saveUrl(url);
 
-        url = urlRepository.save(url);
+        cacheInvalidationFeed.publish(hash, url.getHash());
+
+        UrlResponse urlResponse = urlMapper.toUrlResponse(url);
 
         // set these 2 to null because we all know its user id and campaign id in the request already
-        url.setUser(null);
-        url.setCampaign(null);
+        // (on the response, the entity is still managed and would be flushed)
+        urlResponse.setUserId(null);
+        urlResponse.setCampaignId(null);
 
-        return urlMapper.toUrlResponse(url);
+        return urlResponse;
     }
 
+    @Transactional
     public UrlResponse updateOneByHashAndCampaignIdAndUserId(
             String hash, String campaignId, String userId, UrlUpdateRequest urlUpdateRequest) {
         User user = getCorrectUser(userId);
@@ -327,23 +661,33 @@ public class UrlService {
 
         urlMapper.updateUrl(url, urlUpdateRequest);
         url.setHash(urlUpdateRequest.getAlias());
+        hashBloomFilter.put(url.getHash());
+
+        url = saveUrl(url);
 
-        url = urlRepository.save(url);
+        cacheInvalidationFeed.publish(hash, url.getHash());
+
+        UrlResponse urlResponse = urlMapper.toUrlResponse(url);
 
         // set these 2 to null because we all know its user id and campaign id in the request already
-        url.setUser(null);
-        url.setCampaign(null);
+        // (on the response, the entity is still managed and would be flushed)
+        urlResponse.setUserId(null);
+        urlResponse.setCampaignId(null);
 
-        return urlMapper.toUrlResponse(url);
+        return urlResponse;
     }
 
+    @Transactional
     public void delete(String hash) {
         Url url = getUrlByHash(hash);
         url.setDeleted(true);
 
         urlRepository.save(url);
+
+        cacheInvalidationFeed.publish(hash);
     }
 
+    @Transactional
     public void deleteOneByHashAndUserId(String hash, String userId) {
         User user = getCorrectUser(userId);
 
@@ -358,8 +702,11 @@ public class UrlService {
         // Soft delete the url
         url.setDeleted(true);
         urlRepository.save(url);
+
+        cacheInvalidationFeed.publish(hash);
     }
 
+    @Transactional
     public void deleteOneByHashAndCampaignIdAndUserId(String hash, String campaignId, String userId) {
         User user = getCorrectUser(userId);
 
@@ -378,6 +725,17 @@ public class UrlService {
         url.setDeleted(true);
 
         urlRepository.save(url);
+
+        cacheInvalidationFeed.publish(hash);
+    }
+
+    // Cursor queries take the type as a nullable filter
+    private static Boolean deletedFilter(String type) {
+        return switch (type) {
+            case "not_deleted" -> false;
+            case "deleted" -> true;
+            default -> null;
+        };
     }
 
     private Url getUrlByHash(String hash) {
@@ -388,65 +746,210 @@ public class UrlService {
         MessageDigest md = MessageDigest.getInstance("MD5");
         byte[] digest = md.digest(longUrl.getBytes());
 
-        // Extract the first 6 bytes (12 hex characters)
-        StringBuilder hexString = new StringBuilder();
+        // The first 6 bytes as an unsigned big-endian number
+        long decimal = 0;
         for (int i = 0; i < 6; i++) {
-            String hex = Integer.toHexString(0xFF & digest[i]);
-
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-
-            hexString.append(hex);
+            decimal = decimal << 8 | (0xFF & digest[i]);
         }
 
-        String first6BytesHex = hexString.toString();
+        // Ensure the short Url meets the desired length: left padded with '0', or cut to its most significant digits
+        int width = Math.min(base62Encoder.length(decimal), hashLength);
+        char[] hash = new char[hashLength];
 
-        // Convert hex to decimal
-        long decimal = new BigInteger(first6BytesHex, 16).longValue();
+        Arrays.fill(hash, 0, hashLength - width, '0');
+        base62Encoder.encode(base62Encoder.truncate(decimal, width), width, hash, hashLength - width);
 
-        // Encode decimal to Base62
-        String base62 = base62Encoder.encode(decimal);
-
-        // Ensure the short Url meets the desired length
-        if (base62.length() < hashLength) {
-            base62 = String.format("%" + hashLength + "s", base62).replace(' ', '0');
-        } else if (base62.length() > hashLength) {
-            base62 = base62.substring(0, hashLength);
-        }
-
-        return base62;
+        return new String(hash);
     }
 
-    private Url create(UrlCreationRequest urlCreationRequest) throws NoSuchAlgorithmException {
+    private Url create(UrlCreationRequest urlCreationRequest, boolean guest) throws NoSuchAlgorithmException {
         Url url = urlMapper.toUrl(urlCreationRequest);
 
-        String alias;
+        String alias = null;
 
         // If the user want to custom the alias
         if (urlCreationRequest.getAlias() != null
                 && !urlCreationRequest.getAlias().trim().isEmpty()) {
             alias = urlCreationRequest.getAlias().trim();
 
+            // Straight to the database: the Bloom filter is per pod and misses an alias just created on another
             if (urlRepository.existsByHash(alias)) {
                 throw new AppException(ErrorCode.ALIAS_EXISTED);
             }
         } else {
-            alias = generateHash(url.getLongUrl().trim());
+            // Guest links take a pre-generated key when the pool has one
+            if (guest && shortCodeKeyPool.isEnabled()) {
+                alias = pollKeyPool();
+            }
 
-            // Handle potential collisions
-            while (urlRepository.existsByHash(alias)) {
-                alias = generateHash(alias + getSaltString());
+            if (null == alias && "range".equals(generator)) {
+                // Range codes never repeat, only a custom alias or a code from the hash generator can be in the way
+                do {
+                    alias = shortCodeAllocator.next();
+                } while (hashExists(alias));
+            } else if (null == alias) {
+                alias = generateHash(url.getLongUrl().trim());
+
+                // Handle potential collisions
+                while (hashExists(alias)) {
+                    alias = generateHash(alias + getSaltString());
+                }
             }
         }
 
         url.setHash(alias);
+        url.setLongUrlDigest(LongUrlDigest.of(url.getLongUrl()));
         url.setCreatedAt(Date.from(Instant.now()));
         url.setExpiresAt(Date.from(Instant.now().plus(expirationTime, ChronoUnit.DAYS)));
 
+        // Added before the insert so the redirect path never rejects a hash that is already saved
+        hashBloomFilter.put(alias);
+
         return url;
     }
 
+    // First round from the long url, later rounds salt the colliding code like create does
+    private void generateCandidates(
+            List<Integer> pending, List<UrlCreationRequest> urlCreationRequests, String[] hashes) {
+        if ("range".equals(generator)) {
+            for (int i : pending) {
+                hashes[i] = shortCodeAllocator.next();
+            }
+
+            return;
+        }
+
+        // MD5 is CPU bound, spread it over the cores
+        pending.parallelStream().forEach(i -> {
+            try {
+                hashes[i] = null == hashes[i]
+                        ? generateHash(urlCreationRequests.get(i).getLongUrl().trim())
+                        : generateHash(hashes[i] + getSaltString());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    // Bloom filter negatives never reach this, so it mostly runs for custom aliases
+    private Set<String> findExistingHashes(Collection<String> hashes) {
+        Set<String> existing = new HashSet<>();
+        List<String> candidates = new ArrayList<>(hashes);
+
+        for (int from = 0; from < candidates.size(); from += bulkBatchSize) {
+            existing.addAll(urlRepository.findHashesByHashIn(
+                    candidates.subList(from, Math.min(from + bulkBatchSize, candidates.size()))));
+        }
+
+        return existing;
+    }
+
+    // One multi-row INSERT, the ids are never read back so IDENTITY does not get in the way of batching
+    private void insertUrls(List<Url> urls) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + urls.size() * (INSERT_ROW.length() + 2));
+        sql.append(INSERT_PREFIX);
+
+        for (int i = 0; i < urls.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+
+            sql.append(INSERT_ROW);
+        }
+
+        jdbcTemplate.update(sql.toString(), (PreparedStatement ps) -> {
+            int index = 1;
+
+            for (Url url : urls) {
+                ps.setString(index++, url.getLongUrl());
+                ps.setBytes(index++, url.getLongUrlDigest());
+                ps.setTimestamp(index++, new Timestamp(url.getCreatedAt().getTime()));
+                ps.setTimestamp(index++, new Timestamp(url.getExpiresAt().getTime()));
+                ps.setString(index++, url.getHash());
+                ps.setString(
+                        index++,
+                        null == url.getRedirectType()
+                                ? null
+                                : url.getRedirectType().name());
+                ps.setString(index++, url.getUser().getId());
+                ps.setString(index++, url.getCampaign().getId());
+            }
+        });
+    }
+
+    // A live link of the same owner to the same destination, only for requests without an alias: asking for an
+    // alias is asking for a new link
+    private UrlResponse findDuplicate(String userId, UrlCreationRequest urlCreationRequest) {
+        if (null != urlCreationRequest.getAlias()
+                && !urlCreationRequest.getAlias().trim().isEmpty()) {
+            return null;
+        }
+
+        byte[] digest = LongUrlDigest.of(urlCreationRequest.getLongUrl());
+        String key = UrlDedupCache.key(userId, urlCreationRequest.getRedirectType(), digest);
+        Date now = Date.from(Instant.now());
+
+        UrlDedupCache.Entry entry = urlDedupCache.get(key);
+
+        if (null == entry || !entry.expiresAt().after(now)) {
+            long seen = urlDedupCache.invalidationCount();
+
+            List<Url> urls = null == userId
+                    ? urlRepository.findLiveGuestByLongUrlDigest(digest, now, Limit.of(10))
+                    : urlRepository.findLiveByLongUrlDigestAndUserId(digest, userId, now, Limit.of(10));
+
+            Url url = urls.stream()
+                    .filter(candidate -> candidate.getRedirectType() == urlCreationRequest.getRedirectType())
+                    .findFirst()
+                    .orElse(null);
+
+            if (null == url) {
+                return null;
+            }
+
+            entry = new UrlDedupCache.Entry(
+                    url.getHash(), url.getLongUrl(), url.getCreatedAt(), url.getExpiresAt(), url.getRedirectType());
+            urlDedupCache.put(key, entry, seen);
+        }
+
+        return UrlResponse.builder()
+                .longUrl(entry.longUrl())
+                .createdAt(entry.createdAt())
+                .expiresAt(entry.expiresAt())
+                .userId(userId)
+                .hash(entry.hash())
+                .deleted(false)
+                .redirectType(entry.redirectType())
+                .build();
+    }
+
+    // Keys were unused when generated, but a custom alias created since may have taken one
+    private String pollKeyPool() {
+        String key;
+
+        do {
+            key = shortCodeKeyPool.poll();
+        } while (null != key && hashExists(key));
+
+        return key;
+    }
+
+    // The unique index on hash has the last word: two requests may check the same alias at once, and a code
+    // generated here may match an alias created on another pod that this pod's Bloom filter has not seen yet.
+    // Flushed so an update fails here rather than at commit
+    private Url saveUrl(Url url) {
+        try {
+            return urlRepository.saveAndFlush(url);
+        } catch (DuplicateKeyException e) {
+            throw new AppException(ErrorCode.ALIAS_EXISTED);
+        }
+    }
+
+    // A negative from the Bloom filter is definite, only a possible hit needs the database
+    private boolean hashExists(String hash) {
+        return hashBloomFilter.mightContain(hash) && urlRepository.existsByHash(hash);
+    }
+
     private String getSaltString() {
         String SALTCHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890";
         StringBuilder salt = new StringBuilder();
@@ -458,20 +961,21 @@ public class UrlService {
         return salt.toString();
     }
 
+    // Ownership comes from the token. The reference is a lazy proxy, the user is only loaded if more than its id
+    // is read, e.g. its dedup setting
     private User getCorrectUser(String userId) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOTFOUND));
-
-        SecurityContext securityContext = SecurityContextHolder.getContext();
-        String email = securityContext.getAuthentication().getName();
-
-        if (!user.getEmail().equals(email)) {
+        if (!authorizationService.isCurrentUser(userId)) {
             return null;
         }
 
-        return user;
+        return userRepository.getReferenceById(userId);
     }
 
-    public Map<Object, Object> getMostClickedUrlsByCampaign(String userId, String campaignId) {
+    // Totals come from aggregate queries and only one page of the ranking is loaded, whatever the size of the
+    // campaign. Without a window the counts are all time, from the click counters. With one they come from the day
+    // rollups, so the window is widened to whole days, and urls without clicks in it are not ranked
+    public CampaignStatsResponse getMostClickedUrlsByCampaign(
+            String userId, String campaignId, int offset, int limit, Date from, Date to) {
         User user = getCorrectUser(userId);
 
         if (null == user) {
@@ -482,38 +986,125 @@ public class UrlService {
             throw new AppException(ErrorCode.CAMPAIGN_NOTFOUND);
         }
 
-        List<Object[]> result = urlRepository.findMostClickedUrlsByCampaignIdAndUserId(campaignId, userId);
+        if (offset < 0 || limit < 1 || limit > maxStatsLimit) {
+            throw new AppException(ErrorCode.STATS_LIMIT_INVALID);
+        }
+
+        // Offset based, unlike PageRequest it does not have to be a multiple of the limit
+        Pageable pageable = new OffsetLimitPageable(offset, limit);
 
-        int totalLinks = result.size();
-        int totalClickCount = 0;
+        CampaignStatsResponse.CampaignStatsResponseBuilder response = CampaignStatsResponse.builder()
+                .totalShortenedLinks(urlRepository.countByCampaignIdAndUserId(campaignId, userId))
+                .offset(offset)
+                .limit(limit);
 
-        Map<Object, Object> response = new HashMap<>();
+        List<CampaignStatsResponse.UrlClicks> urls = new ArrayList<>();
 
-        // Convert result to a more readable format
-        List<Map<String, Object>> responseUrls = new ArrayList<>();
-        for (Object[] row : result) {
-            Url url = (Url) row[0];
-            Long clickCount = (Long) row[1];
+        if (null == from && null == to) {
+            response.totalClickCount(urlRepository.sumClickCountByCampaignIdAndUserId(campaignId, userId)
+                    + clickCounterShardRepository.sumClicksByCampaignIdAndUserId(campaignId, userId));
 
-            Map<String, Object> data = new HashMap<>();
-            data.put("url", urlMapper.toUrlResponse(url));
-            data.put("clickCount", clickCount);
+            for (Object[] row : urlRepository.findMostClickedByCampaignIdAndUserId(campaignId, userId, pageable)) {
+                urls.add(new CampaignStatsResponse.UrlClicks(
+                        urlMapper.toUrlResponse((Url) row[0]), ((Number) row[1]).longValue()));
+            }
+
+            return response.urls(urls).build();
+        }
 
-            totalClickCount += clickCount;
+        Instant end = null == to ? Instant.now() : to.toInstant();
+        Instant start = (null == from
+                        ? end.minus(RollupGranularity.DAY.getDefaultBuckets(), ChronoUnit.DAYS)
+                        : from.toInstant())
+                .truncatedTo(ChronoUnit.DAYS);
 
-            responseUrls.add(data);
+        if (!start.isBefore(end)) {
+            throw new AppException(ErrorCode.STATS_WINDOW_INVALID);
         }
 
-        response.put("totalClickCount", totalClickCount);
-        response.put("totalShortenedLinks", totalLinks);
-        response.put("urls", responseUrls);
+        Date startDate = Date.from(start);
+        Date endDate = Date.from(end);
+
+        response.from(startDate)
+                .to(endDate)
+                .totalClickCount(clickRollupRepository.sumClicksByCampaignIdAndUserId(
+                        campaignId, userId, RollupGranularity.DAY, startDate, endDate));
+
+        List<Object[]> rows = clickRollupRepository.findMostClickedByCampaignIdAndUserId(
+                campaignId, userId, RollupGranularity.DAY, startDate, endDate, pageable);
+
+        Map<Integer, Url> page = new HashMap<>();
+        urlRepository
+                .findAllById(rows.stream().map(row -> (Integer) row[0]).toList())
+                .forEach(url -> page.put(url.getId(), url));
+
+        for (Object[] row : rows) {
+            urls.add(new CampaignStatsResponse.UrlClicks(
+                    urlMapper.toUrlResponse(page.get((Integer) row[0])), ((Number) row[1]).longValue()));
+        }
 
-        return response;
+        return response.urls(urls).build();
+    }
+
+    // Read from the rollups, which trail the click table by up to two aggregation intervals
+    public ClickStatsResponse getClickStats(
+            String userId, String campaignId, String hash, RollupGranularity granularity, Date from, Date to) {
+        User user = getCorrectUser(userId);
+
+        if (null == user) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+
+        if (!campaignRepository.existsByIdAndUserId(campaignId, userId)) {
+            throw new AppException(ErrorCode.CAMPAIGN_NOTFOUND);
+        }
+
+        Url url = urlRepository
+                .findByHashAndCampaignIdAndUserId(hash, campaignId, userId)
+                .orElseThrow(() -> new AppException(ErrorCode.URL_NOTFOUND));
+
+        Instant end = null == to ? Instant.now() : to.toInstant();
+        Instant start = (null == from
+                        ? end.minus(granularity.getDefaultBuckets(), granularity.getUnit())
+                        : from.toInstant())
+                .truncatedTo(granularity.getUnit());
+
+        // Keeps a minute series over years from being asked for
+        if (!start.isBefore(end) || granularity.getUnit().between(start, end) > maxStatsBuckets) {
+            throw new AppException(ErrorCode.STATS_WINDOW_INVALID);
+        }
+
+        Date startDate = Date.from(start);
+        Date endDate = Date.from(end);
+
+        long totalClicks = 0;
+
+        List<ClickStatsResponse.Bucket> buckets = new ArrayList<>();
+        for (Object[] row : clickRollupRepository.sumClicksByBucket(url.getId(), granularity, startDate, endDate)) {
+            long clicks = ((Number) row[1]).longValue();
+
+            buckets.add(new ClickStatsResponse.Bucket((Date) row[0], clicks));
+            totalClicks += clicks;
+        }
+
+        List<ClickStatsResponse.PlatformClicks> platforms =
+                clickRollupRepository.sumClicksByPlatform(url.getId(), granularity, startDate, endDate).stream()
+                        .map(row ->
+                                new ClickStatsResponse.PlatformClicks((String) row[0], ((Number) row[1]).longValue()))
+                        .toList();
+
+        return ClickStatsResponse.builder()
+                .granularity(granularity)
+                .from(startDate)
+                .to(endDate)
+                .totalClicks(totalClicks)
+                .buckets(buckets)
+                .platforms(platforms)
+                .build();
     }
 
     public List<UrlResponse> searchForUrl(String q) {
-        Pageable pageable = PageRequest.of(0, 20);
-        List<Url> urls = urlRepository.searchUrls(q, pageable);
+        List<Url> urls = urlSearchService.search(q);
 
         return urls.stream().map(urlMapper::toUrlResponse).toList();
     }
@@ -525,8 +1116,7 @@ public class UrlService {
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         }
 
-        Pageable pageable = PageRequest.of(0, 20);
-        List<Url> urls = urlRepository.searchUrlsWithinUserId(userId, q, pageable);
+        List<Url> urls = urlSearchService.searchWithinUserId(userId, q);
         return urls.stream().map(urlMapper::toUrlResponse).toList();
     }
 
@@ -541,12 +1131,13 @@ public class UrlService {
             throw new AppException(ErrorCode.CAMPAIGN_NOTFOUND);
         }
 
-        Pageable pageable = PageRequest.of(0, 20);
-        List<Url> urls = urlRepository.searchUrlsWithinUserIdAndCampaignId(userId, campaignId, q, pageable);
+        List<Url> urls = urlSearchService.searchWithinUserIdAndCampaignId(userId, campaignId, q);
         return urls.stream().map(urlMapper::toUrlResponse).toList();
     }
 
-    public PageResponse<ClickResponse> getClicks(String userId, String campaignId, String hash, Pageable pageable) {
+    // With a cursor there is no COUNT over the clicks, records comes from the url's click counter if asked for
+    public PageResponse<ClickResponse> getClicks(
+            String userId, String campaignId, String hash, int page, int size, String cursor, boolean count) {
         User user = getCorrectUser(userId);
 
         if (null == user) {
@@ -557,10 +1148,29 @@ public class UrlService {
             throw new AppException(ErrorCode.CAMPAIGN_NOTFOUND);
         }
 
+        if (null != cursor) {
+            Url url = urlRepository
+                    .findByHashAndCampaignIdAndUserId(hash, campaignId, userId)
+                    .orElseThrow(() -> new AppException(ErrorCode.URL_NOTFOUND));
+
+            PageCursor.Slice<Click> slice = PageCursor.slice(
+                    clickRepository.findAllByUrlIdAfterId(
+                            url.getId(), PageCursor.decodeLong(cursor), Limit.of(size + 1)),
+                    size,
+                    Click::getId);
+
+            return PageResponse.<ClickResponse>builder()
+                    .items(slice.items().stream().map(clickMapper::toResponse).toList())
+                    .nextCursor(slice.nextCursor())
+                    .records(count ? clickCounterService.getClickCount(url) : null)
+                    .build();
+        }
+
         if (!urlRepository.existsByHashAndCampaignIdAndUserId(hash, campaignId, userId)) {
             throw new AppException(ErrorCode.URL_NOTFOUND);
         }
 
+        Pageable pageable = PageRequest.of(page - 1, size);
         Page<Click> clicks = clickRepository.findAllByHashAndCampaignIdAndUserId(hash, campaignId, userId, pageable);
 
         List<ClickResponse> clickResponses =
@@ -568,9 +1178,29 @@ public class UrlService {
 
         return PageResponse.<ClickResponse>builder()
                 .items(clickResponses)
-                .page(pageable.getPageNumber() + 1)
+                .page(page)
                 .records(clicks.getTotalElements())
                 .totalPages(clicks.getTotalPages())
                 .build();
     }
+
+    // Checked here on the request thread, the body runs later on another one without the security context
+    public StreamingResponseBody exportClicks(
+            String userId, String campaignId, String hash, ClickExportService.Format format, boolean gzip) {
+        User user = getCorrectUser(userId);
+
+        if (null == user) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+
+        if (!campaignRepository.existsByIdAndUserId(campaignId, userId)) {
+            throw new AppException(ErrorCode.CAMPAIGN_NOTFOUND);
+        }
+
+        Url url = urlRepository
+                .findByHashAndCampaignIdAndUserId(hash, campaignId, userId)
+                .orElseThrow(() -> new AppException(ErrorCode.URL_NOTFOUND));
+
+        return clickExportService.export(url.getId(), format, gzip);
+    }
 }
@@ -6,6 +6,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -13,6 +14,7 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.url.urlshortenerbe.caches.PageCountCache;
 import org.url.urlshortenerbe.dtos.requests.UserCreationRequest;
 import org.url.urlshortenerbe.dtos.requests.UserUpdateRequest;
 import org.url.urlshortenerbe.dtos.responses.PageResponse;
@@ -28,6 +30,7 @@ import org.url.urlshortenerbe.mappers.RoleMapper;
 import org.url.urlshortenerbe.mappers.UserMapper;
 import org.url.urlshortenerbe.repositories.RoleRepository;
 import org.url.urlshortenerbe.repositories.UserRepository;
+import org.url.urlshortenerbe.utils.PageCursor;
 
 import lombok.RequiredArgsConstructor;
 
@@ -37,12 +40,16 @@ public class UserService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
 
+    private final AuthorizationService authorizationService;
+
     private final UserMapper userMapper;
     private final RoleMapper roleMapper;
     private final PermissionMapper permissionMapper;
 
     private final PasswordEncoder passwordEncoder;
 
+    private final PageCountCache pageCountCache;
+
     public UserResponse create(UserCreationRequest userCreationRequest) {
         // validate the username first
         if (userRepository.existsByEmail(userCreationRequest.getEmail())) {
@@ -78,26 +85,43 @@ public class UserService {
         return userResponse;
     }
 
-    public PageResponse<UserResponse> getAll(int page, int size, boolean compact, String type) {
-        Pageable pageable = PageRequest.of(page - 1, size);
-
-        Page<User> users =
-                switch (type) {
-                    case ("not_banned") -> userRepository.findAllByBannedIs(false, pageable);
-                    case ("banned") -> userRepository.findAllByBannedIs(true, pageable);
-                    default -> userRepository.findAll(pageable);
-                };
+    public PageResponse<UserResponse> getAll(
+            int page, int size, boolean compact, String type, String cursor, boolean count) {
+        PageResponse.PageResponseBuilder<UserResponse> response = PageResponse.builder();
+        List<User> users;
+
+        if (null == cursor) {
+            Pageable pageable = PageRequest.of(page - 1, size);
+
+            Page<User> usersPage =
+                    switch (type) {
+                        case ("not_banned") -> userRepository.findAllByBannedIs(false, pageable);
+                        case ("banned") -> userRepository.findAllByBannedIs(true, pageable);
+                        default -> userRepository.findAll(pageable);
+                    };
+
+            users = usersPage.getContent();
+            response.page(page).records(usersPage.getTotalElements()).totalPages(usersPage.getTotalPages());
+        } else {
+            Boolean banned = bannedFilter(type);
+            PageCursor.Slice<User> slice = PageCursor.slice(
+                    userRepository.findAllAfterId(PageCursor.decodeString(cursor), banned, Limit.of(size + 1)),
+                    size,
+                    User::getId);
+
+            users = slice.items();
+            response.nextCursor(slice.nextCursor());
+
+            if (count) {
+                response.records(pageCountCache.get("users:" + banned, () -> userRepository.countByBanned(banned)));
+            }
+        }
 
-        List<UserResponse> userResponseList = users.getContent().stream()
+        List<UserResponse> userResponseList = users.stream()
                 .map(user -> mapRolesAndPermissionsToUserResponse(user, compact))
                 .toList();
 
-        return PageResponse.<UserResponse>builder()
-                .items(userResponseList)
-                .page(page)
-                .records(users.getTotalElements())
-                .totalPages(users.getTotalPages())
-                .build();
+        return response.items(userResponseList).build();
     }
 
     public UserResponse getOne(String userId, boolean compact) {
@@ -110,13 +134,13 @@ public class UserService {
         SecurityContext securityContext = SecurityContextHolder.getContext();
         String email = securityContext.getAuthentication().getName();
 
-        User user = getUser(userId);
-
-        // Only allow admin or user with its correct email to change the information
-        if (!email.equals("admin@admin.com") && !user.getEmail().equals(email)) {
-            throw new AppException(ErrorCode.UNAUTHORIZED);
+        // Only allow admin or the user itself to change the information, checked before anything is loaded
+        if (!email.equals("admin@admin.com")) {
+            authorizationService.checkCurrentUser(userId);
         }
 
+        User user = getUser(userId);
+
         userMapper.updateUser(user, userUpdateRequest);
         if (!userUpdateRequest.getPassword().trim().isEmpty()) {
             user.setPassword(passwordEncoder.encode(userUpdateRequest.getPassword()));
@@ -178,4 +202,13 @@ public class UserService {
 
         return userResponse;
     }
+
+    // Cursor queries take the type as a nullable filter
+    private static Boolean bannedFilter(String type) {
+        return switch (type) {
+            case "not_banned" -> false;
+            case "banned" -> true;
+            default -> null;
+        };
+    }
 }
@@ -1,24 +1,143 @@
 package org.url.urlshortenerbe.utils;
 
+import java.util.Arrays;
+
 import org.springframework.stereotype.Component;
 
+// Writes digits straight into the caller's buffer from the least significant end, so encoding needs no
+// StringBuilder and no reverse, and the buffer variants allocate nothing at all
 @Component
 public class Base62Encoder {
-    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final char[] BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    // 62^11 > Long.MAX_VALUE
+    public static final int MAX_LENGTH = 11;
+
+    // Digit of each ASCII character, -1 outside the alphabet
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+
+        for (int i = 0; i < BASE62.length; i++) {
+            DIGITS[BASE62[i]] = (byte) i;
+        }
+    }
 
     public String encode(long number) {
-        StringBuilder result = new StringBuilder();
+        char[] chars = new char[MAX_LENGTH];
+        int width = length(number);
+
+        encode(number, width, chars, 0);
+
+        return new String(chars, 0, width);
+    }
+
+    // Exactly width characters, left padded with '0', for values below 62^width
+    public String encode(long number, int width) {
+        char[] chars = new char[width];
+
+        encode(number, width, chars, 0);
+
+        return new String(chars);
+    }
+
+    public void encode(long number, int width, char[] buffer, int offset) {
+        checkEncodable(number, width);
+
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = BASE62[(int) (number % 62)];
+            number /= 62;
+        }
+
+        checkFits(number, width);
+    }
+
+    // ASCII bytes, for hashes written to byte buffers and files
+    public void encode(long number, int width, byte[] buffer, int offset) {
+        checkEncodable(number, width);
+
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = (byte) BASE62[(int) (number % 62)];
+            number /= 62;
+        }
+
+        checkFits(number, width);
+    }
+
+    // Number of digits without padding, at least 1
+    public int length(long number) {
+        checkEncodable(number, 1);
 
-        if (number == 0) {
-            return "0";
+        int length = 1;
+        while (number >= 62) {
+            number /= 62;
+            length++;
         }
 
-        while (number > 0) {
-            int remainder = (int) (number % 62);
-            result.append(BASE62.charAt(remainder));
+        return length;
+    }
+
+    // The width most significant digits of number, so encode(truncate(n, w), w) is a prefix of encode(n)
+    public long truncate(long number, int width) {
+        for (int length = length(number); length > width; length--) {
             number /= 62;
         }
 
-        return result.reverse().toString();
+        return number;
+    }
+
+    // Returns -1 when the string holds a character outside the alphabet or does not fit in a long
+    public long decode(CharSequence value) {
+        if (value.isEmpty()) {
+            return -1;
+        }
+
+        long result = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            int digit = c < DIGITS.length ? DIGITS[c] : -1;
+
+            if (digit < 0 || result > (Long.MAX_VALUE - digit) / 62) {
+                return -1;
+            }
+
+            result = result * 62 + digit;
+        }
+
+        return result;
+    }
+
+    public long decode(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return -1;
+        }
+
+        long result = 0;
+
+        for (int i = offset; i < offset + length; i++) {
+            int digit = buffer[i] >= 0 ? DIGITS[buffer[i]] : -1;
+
+            if (digit < 0 || result > (Long.MAX_VALUE - digit) / 62) {
+                return -1;
+            }
+
+            result = result * 62 + digit;
+        }
+
+        return result;
+    }
+
+    private void checkEncodable(long number, int width) {
+        if (number < 0 || width < 1 || width > MAX_LENGTH) {
+            throw new IllegalArgumentException("Cannot encode " + number + " in " + width + " base62 digits");
+        }
+    }
+
+    private void checkFits(long number, int width) {
+        if (number != 0) {
+            throw new IllegalArgumentException("Value needs more than " + width + " base62 digits");
+        }
     }
 }
@@ -7,12 +7,15 @@ import java.util.Date;
 import java.util.StringJoiner;
 import java.util.UUID;
 
+import jakarta.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.url.urlshortenerbe.caches.RevokedTokenStore;
 import org.url.urlshortenerbe.entities.User;
 import org.url.urlshortenerbe.exceptions.AppException;
 import org.url.urlshortenerbe.exceptions.ErrorCode;
-import org.url.urlshortenerbe.repositories.RevokedTokenRepository;
+import org.url.urlshortenerbe.services.AuthorizationService;
 
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.MACSigner;
@@ -36,39 +39,27 @@ public class JwtUtil {
     @Value("${jwt.refresh-time}")
     private Long REFRESH_TIME;
 
-    private final RevokedTokenRepository revokedTokenRepository;
-
-    public boolean isTokenRefreshable(String token) throws JOSEException, ParseException {
-        JWSVerifier verifier = new MACVerifier(SIGNER_KEY.getBytes());
-
-        SignedJWT signedJWT = SignedJWT.parse(token);
-
-        Date expiryTime = signedJWT.getJWTClaimsSet().getExpirationTime();
-
-        boolean isNotExpired = expiryTime.after(new Date());
+    private final RevokedTokenStore revokedTokenStore;
 
-        boolean isVerified = signedJWT.verify(verifier);
+    // Both are thread safe, built once instead of for every token
+    private JWSVerifier verifier;
+    private JWSSigner signer;
 
-        // In the case if not valid token then throw UNAUTHENTICATED
-        if (!(isNotExpired && isVerified)) {
-            return false;
-        }
+    @PostConstruct
+    public void init() throws JOSEException {
+        verifier = new MACVerifier(SIGNER_KEY.getBytes());
+        signer = new MACSigner(SIGNER_KEY.getBytes());
+    }
 
-        return !revokedTokenRepository.existsById(signedJWT.getJWTClaimsSet().getJWTID());
+    public boolean isRevoked(String jwtId) {
+        return revokedTokenStore.contains(jwtId);
     }
 
     public SignedJWT verifyJWT(String token, boolean isRefresh) throws JOSEException, ParseException {
-        JWSVerifier verifier = new MACVerifier(SIGNER_KEY.getBytes());
-
         SignedJWT signedJWT = SignedJWT.parse(token);
 
         Date expiryTime = isRefresh
-                ? new Date(signedJWT
-                        .getJWTClaimsSet()
-                        .getIssueTime()
-                        .toInstant()
-                        .plus(REFRESH_TIME, ChronoUnit.SECONDS)
-                        .toEpochMilli())
+                ? getRefreshDeadline(signedJWT)
                 : signedJWT.getJWTClaimsSet().getExpirationTime();
 
         boolean isNotExpired = expiryTime.after(new Date());
@@ -80,13 +71,22 @@ public class JwtUtil {
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         }
 
-        if (revokedTokenRepository.existsById(signedJWT.getJWTClaimsSet().getJWTID())) {
+        if (isRevoked(signedJWT.getJWTClaimsSet().getJWTID())) {
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         }
 
         return signedJWT;
     }
 
+    public Date getRefreshDeadline(SignedJWT signedJWT) throws ParseException {
+        return new Date(signedJWT
+                .getJWTClaimsSet()
+                .getIssueTime()
+                .toInstant()
+                .plus(REFRESH_TIME, ChronoUnit.SECONDS)
+                .toEpochMilli());
+    }
+
     public String generateToken(User user) {
         JWSHeader jwsHeader = new JWSHeader(JWSAlgorithm.HS512);
 
@@ -97,6 +97,8 @@ public class JwtUtil {
                 .expirationTime(new Date(
                         Instant.now().plus(EXPIRATION_TIME, ChronoUnit.SECONDS).toEpochMilli()))
                 .jwtID(UUID.randomUUID().toString())
+                // Ownership checks compare it with the path instead of loading the user
+                .claim(AuthorizationService.USER_ID_CLAIM, user.getId())
                 .claim("scope", buildScope(user))
                 .build();
 
@@ -105,7 +107,7 @@ public class JwtUtil {
         JWSObject jwsObject = new JWSObject(jwsHeader, payload);
 
         try {
-            jwsObject.sign(new MACSigner(SIGNER_KEY.getBytes()));
+            jwsObject.sign(signer);
         } catch (JOSEException e) {
             log.error("Could not sign JWT", e);
             throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
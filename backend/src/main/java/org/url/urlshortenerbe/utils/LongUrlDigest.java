@@ -0,0 +1,73 @@
+package org.url.urlshortenerbe.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+// Fixed-width SHA-256 of a long url, the indexed stand-in for the TEXT column when looking up a repeated
+// destination. Scheme and host are case-insensitive, a default port and an empty path are dropped, the rest of
+// the url is kept as it is
+public final class LongUrlDigest {
+    public static final int LENGTH = 32;
+
+    private LongUrlDigest() {}
+
+    public static byte[] of(String longUrl) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest(normalize(longUrl).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String normalize(String longUrl) {
+        String trimmed = longUrl.trim();
+
+        URI uri;
+        try {
+            uri = new URI(trimmed);
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+
+        // Not a server based url, nothing to normalize
+        if (null == uri.getScheme() || null == uri.getHost()) {
+            return trimmed;
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        boolean defaultPort =
+                port == -1 || ("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443);
+
+        StringBuilder normalized =
+                new StringBuilder(trimmed.length()).append(scheme).append("://");
+
+        if (null != uri.getRawUserInfo()) {
+            normalized.append(uri.getRawUserInfo()).append('@');
+        }
+
+        normalized.append(uri.getHost().toLowerCase(Locale.ROOT));
+
+        if (!defaultPort) {
+            normalized.append(':').append(port);
+        }
+
+        normalized.append(null == uri.getRawPath() || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath());
+
+        if (null != uri.getRawQuery()) {
+            normalized.append('?').append(uri.getRawQuery());
+        }
+
+        if (null != uri.getRawFragment()) {
+            normalized.append('#').append(uri.getRawFragment());
+        }
+
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package org.url.urlshortenerbe.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.url.urlshortenerbe.exceptions.AppException;
+import org.url.urlshortenerbe.exceptions.ErrorCode;
+
+// Opaque continuation token holding the primary key of the last row of a page. The next page is a range read
+// on the primary key starting after it, so it costs the same however deep it is. An empty cursor is the start
+public final class PageCursor {
+    private PageCursor() {}
+
+    public record Slice<T>(List<T> items, String nextCursor) {}
+
+    // rows must have been fetched with a limit of size + 1, the extra row only tells that there is a next page
+    public static <T> Slice<T> slice(List<T> rows, int size, Function<T, Object> key) {
+        if (rows.size() <= size) {
+            return new Slice<>(rows, null);
+        }
+
+        List<T> items = rows.subList(0, size);
+
+        return new Slice<>(items, encode(key.apply(items.get(size - 1))));
+    }
+
+    public static String encode(Object key) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodeString(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.CURSOR_INVALID);
+        }
+    }
+
+    // Auto increment ids start at 1
+    public static long decodeLong(String cursor) {
+        if (cursor.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(decodeString(cursor));
+        } catch (NumberFormatException e) {
+            throw new AppException(ErrorCode.CURSOR_INVALID);
+        }
+    }
+
+    public static int decodeInt(String cursor) {
+        long key = decodeLong(cursor);
+
+        if (key < 0 || key > Integer.MAX_VALUE) {
+            throw new AppException(ErrorCode.CURSOR_INVALID);
+        }
+
+        return (int) key;
+    }
+}
@@ -0,0 +1,94 @@
+package org.url.urlshortenerbe.caches;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.url.urlshortenerbe.repositories.UrlRepository;
+
+class HashBloomFilterTest {
+    private static final int PAGE_SIZE = 100;
+
+    private final UrlRepository urlRepository = mock(UrlRepository.class);
+    private final HashBloomFilter hashBloomFilter = new HashBloomFilter(urlRepository);
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(hashBloomFilter, "expectedInsertions", 1_000L);
+        ReflectionTestUtils.setField(hashBloomFilter, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.setField(hashBloomFilter, "pageSize", PAGE_SIZE);
+
+        // Keyset pages like the real query: ids after the given one, in order, at most a page
+        when(urlRepository.count()).thenAnswer(invocation -> (long) rows.size());
+        when(urlRepository.findIdAndHashAfterId(anyInt(), any(Pageable.class))).thenAnswer(invocation -> {
+            int afterId = invocation.getArgument(0);
+
+            return rows.stream()
+                    .filter(row -> (Integer) row[0] > afterId)
+                    .limit(PAGE_SIZE)
+                    .toList();
+        });
+    }
+
+    @Test
+    void mightContainEverythingBeforeTheFirstBuild() {
+        assertThat(hashBloomFilter.mightContain("abc123")).isTrue();
+    }
+
+    @Test
+    void containsEveryStoredHashAfterARebuild() {
+        // Several full pages and a partial one
+        addRows(1, 350);
+
+        hashBloomFilter.rebuild();
+
+        assertThat(rows).allMatch(row -> hashBloomFilter.mightContain((String) row[1]));
+        assertThat(hashBloomFilter.mightContain("never-stored")).isFalse();
+    }
+
+    @Test
+    void keepsPutsMadeAfterTheBuildUntilTheNextOne() {
+        addRows(1, PAGE_SIZE);
+        hashBloomFilter.rebuild();
+
+        hashBloomFilter.put("alias-from-another-pod");
+        assertThat(hashBloomFilter.mightContain("alias-from-another-pod")).isTrue();
+
+        addRows(PAGE_SIZE + 1, 2 * PAGE_SIZE);
+        hashBloomFilter.rebuild();
+
+        assertThat(rows).allMatch(row -> hashBloomFilter.mightContain((String) row[1]));
+    }
+
+    @Test
+    void mightContainEverythingAfterAResetUntilRebuilt() {
+        addRows(1, 10);
+        hashBloomFilter.rebuild();
+        hashBloomFilter.reset();
+
+        assertThat(hashBloomFilter.mightContain("missed-while-behind")).isTrue();
+
+        rows.add(new Object[] {11, "missed-while-behind"});
+        hashBloomFilter.rebuild();
+
+        assertThat(hashBloomFilter.mightContain("missed-while-behind")).isTrue();
+        assertThat(rows).allMatch(row -> hashBloomFilter.mightContain((String) row[1]));
+    }
+
+    private void addRows(int fromId, int toId) {
+        for (int id = fromId; id <= toId; id++) {
+            rows.add(new Object[] {id, "h" + Integer.toString(id, 36)});
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.url.urlshortenerbe.configs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.url.urlshortenerbe.exceptions.ErrorCode;
+import org.url.urlshortenerbe.services.RedirectionService;
+import org.url.urlshortenerbe.services.RedirectionService.Redirect;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class RedirectFastPathFilterTest {
+    private final RedirectionService redirectionService = mock(RedirectionService.class);
+
+    @Test
+    void escapesTheLocationLikeTheController() throws Exception {
+        when(redirectionService.getUrlAndCountClick(eq("abc123"), anyString(), anyString()))
+                .thenReturn(new Redirect("https://example.com/café?q=ü", HttpStatus.FOUND, "no-store"));
+
+        MockHttpServletResponse response = redirect(filter("/api"), "/abc123");
+
+        assertThat(response.getStatus()).isEqualTo(302);
+        assertThat(response.getHeader(HttpHeaders.LOCATION)).isEqualTo("https://example.com/caf%C3%A9?q=%C3%BC");
+    }
+
+    @Test
+    void answersAnInvalidLocationWithAnErrorInsteadOfTheRawValue() throws Exception {
+        when(redirectionService.getUrlAndCountClick(eq("abc123"), anyString(), anyString()))
+                .thenReturn(new Redirect("https://example.com/\r\nSet-Cookie: a=b", HttpStatus.FOUND, "no-store"));
+
+        MockHttpServletResponse response = redirect(filter("/api"), "/abc123");
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getHeader(HttpHeaders.LOCATION)).isNull();
+    }
+
+    @Test
+    void answersAnUnexpectedFailureLikeGlobalExceptionHandler() throws Exception {
+        when(redirectionService.getUrlAndCountClick(eq("abc123"), anyString(), anyString()))
+                .thenThrow(new QueryTimeoutException("Statement cancelled"));
+
+        MockHttpServletResponse response = redirect(filter("/api"), "/abc123");
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getHeader(HttpHeaders.LOCATION)).isNull();
+        assertThat(response.getContentAsString())
+                .contains(String.valueOf(ErrorCode.UNCATEGORIZED_EXCEPTION.getCode()))
+                .contains("Statement cancelled");
+    }
+
+    @Test
+    void leavesTheWholeApiPrefixToTheRegularStack() throws Exception {
+        RedirectFastPathFilter filter = filter("/api/v1/");
+
+        assertThat(passesThrough(filter, "/api/v1")).isTrue();
+        assertThat(passesThrough(filter, "/actuator")).isTrue();
+        assertThat(passesThrough(filter, "/error")).isTrue();
+        verifyNoInteractions(redirectionService);
+    }
+
+    @Test
+    void readsOtherSingleSegmentsAsHashes() throws Exception {
+        when(redirectionService.getUrlAndCountClick(anyString(), anyString(), anyString()))
+                .thenReturn(new Redirect("https://example.com/", HttpStatus.FOUND, "no-store"));
+
+        RedirectFastPathFilter filter = filter("/api/v1");
+
+        // Only the full prefix is reserved, not its first segment or the prefix without slashes
+        assertThat(passesThrough(filter, "/api")).isFalse();
+        assertThat(passesThrough(filter, "/apiv1")).isFalse();
+    }
+
+    private RedirectFastPathFilter filter(String apiPrefix) throws Exception {
+        return new RedirectFastPathFilter(redirectionService, new ObjectMapper(), apiPrefix);
+    }
+
+    private static MockHttpServletResponse redirect(RedirectFastPathFilter filter, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader(HttpHeaders.USER_AGENT, "test");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        return response;
+    }
+
+    private static boolean passesThrough(RedirectFastPathFilter filter, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader(HttpHeaders.USER_AGENT, "test");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        return null != chain.getRequest();
+    }
+}
@@ -0,0 +1,115 @@
+package org.url.urlshortenerbe.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.url.urlshortenerbe.utils.Base62Encoder;
+
+class ShortCodeAllocatorTest {
+    @Test
+    void permutesEveryIdOfALengthOneDomainToADistinctCode() {
+        assertBijection(permutation(1, 7046029254386353131L), 62);
+    }
+
+    @Test
+    void permutesEveryIdOfALengthTwoDomainToADistinctCode() {
+        assertBijection(permutation(2, 7046029254386353131L), 62 * 62);
+        assertBijection(permutation(2, -1L), 62 * 62);
+    }
+
+    @Test
+    void differentSecretsGiveDifferentPermutations() {
+        ShortCodeAllocator first = permutation(2, 1L);
+        ShortCodeAllocator second = permutation(2, 2L);
+
+        int same = 0;
+        for (long id = 0; id < 62 * 62; id++) {
+            if (first.permute(id) == second.permute(id)) {
+                same++;
+            }
+        }
+
+        assertThat(same).isLessThan(62 * 62 / 10);
+    }
+
+    @Test
+    void failsStartupWithoutASecretForTheRangeGenerator() {
+        ShortCodeAllocator allocator =
+                new ShortCodeAllocator(null, null, new Base62Encoder(), new SimpleAsyncTaskExecutorBuilder());
+        ReflectionTestUtils.setField(allocator, "generator", "range");
+        ReflectionTestUtils.setField(allocator, "length", 6);
+
+        assertThatThrownBy(allocator::init).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void leasesTheNextBlockOnceHalfOfTheCurrentOneIsHandedOut() {
+        ShortCodeAllocator allocator =
+                new ShortCodeAllocator(null, null, new Base62Encoder(), new SimpleAsyncTaskExecutorBuilder());
+        ReflectionTestUtils.setField(allocator, "generator", "range");
+        ReflectionTestUtils.setField(allocator, "length", 2);
+        ReflectionTestUtils.setField(allocator, "blockSize", 4);
+        ReflectionTestUtils.setField(allocator, "secret", 1L);
+        allocator.init();
+
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.<Long>execute(any())).thenReturn(0L, 4L, 8L);
+        ReflectionTestUtils.setField(allocator, "transactionTemplate", transactionTemplate);
+
+        List<String> codes = new ArrayList<>();
+        codes.add(allocator.next());
+        codes.add(allocator.next());
+
+        // Two of four ids left, the second block is leased without anyone running out
+        verify(transactionTemplate, timeout(1000).times(2)).execute(any());
+
+        for (int i = 0; i < 4; i++) {
+            codes.add(allocator.next());
+        }
+
+        verify(transactionTemplate, timeout(1000).times(3)).execute(any());
+
+        assertThat(codes).doesNotHaveDuplicates().hasSize(6);
+        for (int id = 0; id < 6; id++) {
+            assertThat(codes.get(id)).isEqualTo(new Base62Encoder().encode(allocator.permute(id), 2));
+        }
+    }
+
+    private static ShortCodeAllocator permutation(int length, long secret) {
+        ShortCodeAllocator allocator =
+                new ShortCodeAllocator(null, null, new Base62Encoder(), new SimpleAsyncTaskExecutorBuilder());
+        ReflectionTestUtils.setField(allocator, "length", length);
+        allocator.keyPermutation(secret);
+
+        return allocator;
+    }
+
+    private static void assertBijection(ShortCodeAllocator allocator, int domain) {
+        BitSet seen = new BitSet(domain);
+
+        for (long id = 0; id < domain; id++) {
+            long code = allocator.permute(id);
+
+            assertThat(code).isBetween(0L, domain - 1L);
+            assertThat(seen.get((int) code))
+                    .as("code of id %d already taken", id)
+                    .isFalse();
+            seen.set((int) code);
+        }
+
+        assertThat(seen.cardinality()).isEqualTo(domain);
+    }
+}
@@ -0,0 +1,170 @@
+package org.url.urlshortenerbe.utils;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Compares Base62Encoder with the StringBuilder encoder it replaced, on its own and inside the MD5 short code
+// generation of UrlService. Not a unit test, run it through benchmark-base62.sh
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Base62EncoderBenchmark {
+    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private static final int INPUTS = 1024;
+
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+
+    // url.length, package-private for the generated harness
+    @Param("6")
+    int length;
+
+    private final long[] numbers = new long[INPUTS];
+    private final byte[][] codes = new byte[INPUTS][9];
+    private final String[] urls = new String[INPUTS];
+    private final char[] buffer = new char[Base62Encoder.MAX_LENGTH];
+
+    private int index;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        for (int i = 0; i < INPUTS; i++) {
+            numbers[i] = ThreadLocalRandom.current().nextLong(1L << 48);
+            base62Encoder.encode(numbers[i], 9, codes[i], 0);
+            urls[i] = "https://example.com/" + ThreadLocalRandom.current().nextLong() + "?utm_source=" + i;
+        }
+
+        // A faster encoder that gives other codes is no replacement
+        for (int i = 0; i < INPUTS; i++) {
+            if (!legacyEncode(numbers[i]).equals(base62Encoder.encode(numbers[i]))) {
+                throw new IllegalStateException("Encoding differs for " + numbers[i]);
+            }
+
+            if (!legacyGenerateHash(urls[i]).equals(generateHash(urls[i]))) {
+                throw new IllegalStateException("Codes differ for " + urls[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public String encodeBefore() {
+        return legacyEncode(numbers[next()]);
+    }
+
+    @Benchmark
+    public String encode() {
+        return base62Encoder.encode(numbers[next()]);
+    }
+
+    @Benchmark
+    public char[] encodeIntoBuffer() {
+        base62Encoder.encode(numbers[next()], 9, buffer, 0);
+
+        return buffer;
+    }
+
+    @Benchmark
+    public long decode() {
+        return base62Encoder.decode(codes[next()], 0, 9);
+    }
+
+    @Benchmark
+    public String generateHashBefore() throws NoSuchAlgorithmException {
+        return legacyGenerateHash(urls[next()]);
+    }
+
+    @Benchmark
+    public String generateHashAfter() throws NoSuchAlgorithmException {
+        return generateHash(urls[next()]);
+    }
+
+    private int next() {
+        index = (index + 1) & (INPUTS - 1);
+
+        return index;
+    }
+
+    // Base62Encoder.encode before the change
+    private static String legacyEncode(long number) {
+        StringBuilder result = new StringBuilder();
+
+        if (number == 0) {
+            return "0";
+        }
+
+        while (number > 0) {
+            int remainder = (int) (number % 62);
+            result.append(BASE62.charAt(remainder));
+            number /= 62;
+        }
+
+        return result.reverse().toString();
+    }
+
+    // UrlService.generateHash before the change
+    private String legacyGenerateHash(String longUrl) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        byte[] digest = md.digest(longUrl.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hexString = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            String hex = Integer.toHexString(0xFF & digest[i]);
+
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+
+            hexString.append(hex);
+        }
+
+        long decimal = new BigInteger(hexString.toString(), 16).longValue();
+        String base62 = legacyEncode(decimal);
+
+        if (base62.length() < length) {
+            base62 = String.format("%" + length + "s", base62).replace(' ', '0');
+        } else if (base62.length() > length) {
+            base62 = base62.substring(0, length);
+        }
+
+        return base62;
+    }
+
+    // UrlService.generateHash, private there
+    private String generateHash(String longUrl) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        byte[] digest = md.digest(longUrl.getBytes(StandardCharsets.UTF_8));
+
+        long decimal = 0;
+        for (int i = 0; i < 6; i++) {
+            decimal = decimal << 8 | (0xFF & digest[i]);
+        }
+
+        int width = Math.min(base62Encoder.length(decimal), length);
+        char[] hash = new char[length];
+
+        Arrays.fill(hash, 0, length - width, '0');
+        base62Encoder.encode(base62Encoder.truncate(decimal, width), width, hash, length - width);
+
+        return new String(hash);
+    }
+}
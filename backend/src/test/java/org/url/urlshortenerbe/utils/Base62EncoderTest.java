@@ -0,0 +1,92 @@
+package org.url.urlshortenerbe.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+
+class Base62EncoderTest {
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+
+    @Test
+    void encodesAndDecodesBackToTheSameNumber() {
+        long[] numbers = {0, 1, 61, 62, 3843, 3844, Long.MAX_VALUE};
+
+        for (long number : numbers) {
+            assertThat(base62Encoder.decode(base62Encoder.encode(number))).isEqualTo(number);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            long number = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+
+            assertThat(base62Encoder.decode(base62Encoder.encode(number))).isEqualTo(number);
+        }
+    }
+
+    @Test
+    void encodesWithoutPadding() {
+        assertThat(base62Encoder.encode(0)).isEqualTo("0");
+        assertThat(base62Encoder.encode(61)).isEqualTo("z");
+        assertThat(base62Encoder.encode(62)).isEqualTo("10");
+        assertThat(base62Encoder.encode(Long.MAX_VALUE)).hasSize(Base62Encoder.MAX_LENGTH);
+    }
+
+    @Test
+    void padsToTheRequestedWidth() {
+        assertThat(base62Encoder.encode(62, 6)).isEqualTo("000010");
+
+        char[] chars = new char[8];
+        base62Encoder.encode(61, 3, chars, 5);
+        assertThat(new String(chars, 5, 3)).isEqualTo("00z");
+
+        byte[] bytes = new byte[4];
+        base62Encoder.encode(3843, 4, bytes, 0);
+        assertThat(new String(bytes, StandardCharsets.US_ASCII)).isEqualTo("00zz");
+        assertThat(base62Encoder.decode(bytes, 0, 4)).isEqualTo(3843);
+    }
+
+    @Test
+    void rejectsWidthsItCannotEncode() {
+        assertThatThrownBy(() -> base62Encoder.encode(1, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> base62Encoder.encode(1, Base62Encoder.MAX_LENGTH + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> base62Encoder.encode(62, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> base62Encoder.encode(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void measuresAndTruncatesToTheMostSignificantDigits() {
+        assertThat(base62Encoder.length(0)).isEqualTo(1);
+        assertThat(base62Encoder.length(3843)).isEqualTo(2);
+        assertThat(base62Encoder.length(3844)).isEqualTo(3);
+
+        long number = 123_456_789L;
+        String encoded = base62Encoder.encode(number);
+
+        assertThat(base62Encoder.encode(base62Encoder.truncate(number, 3), 3)).isEqualTo(encoded.substring(0, 3));
+        assertThat(base62Encoder.truncate(number, encoded.length() + 1)).isEqualTo(number);
+    }
+
+    @Test
+    void decodesInvalidInputToMinusOne() {
+        assertThat(base62Encoder.decode("")).isEqualTo(-1);
+        assertThat(base62Encoder.decode("ab-c")).isEqualTo(-1);
+        assertThat(base62Encoder.decode("é")).isEqualTo(-1);
+        assertThat(base62Encoder.decode(new byte[] {'a', (byte) 0xC3}, 0, 2)).isEqualTo(-1);
+        assertThat(base62Encoder.decode(new byte[0], 0, 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void decodesOverflowToMinusOne() {
+        String max = base62Encoder.encode(Long.MAX_VALUE);
+
+        assertThat(base62Encoder.decode(max)).isEqualTo(Long.MAX_VALUE);
+        assertThat(base62Encoder.decode("zzzzzzzzzzz")).isEqualTo(-1);
+        assertThat(base62Encoder.decode(max + "0")).isEqualTo(-1);
+        assertThat(base62Encoder.decode("zzzzzzzzzzz".getBytes(StandardCharsets.US_ASCII), 0, 11))
+                .isEqualTo(-1);
+    }
+}
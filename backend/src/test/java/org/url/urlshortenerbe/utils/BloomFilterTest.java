@@ -0,0 +1,52 @@
+package org.url.urlshortenerbe.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        List<String> hashes = hashes(0, 100_000);
+
+        hashes.forEach(filter::put);
+
+        assertThat(hashes).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void keepsCloseToTheConfiguredFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        hashes(0, 100_000).forEach(filter::put);
+
+        long falsePositives =
+                hashes(100_000, 200_000).stream().filter(filter::mightContain).count();
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void takesConcurrentPutsWithoutLosingAny() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        List<String> hashes = hashes(0, 100_000);
+
+        hashes.parallelStream().forEach(filter::put);
+
+        assertThat(hashes).allMatch(filter::mightContain);
+    }
+
+    // Sequential ids encoded like short codes, the low entropy input the filter has to spread
+    private List<String> hashes(int from, int to) {
+        List<String> hashes = new ArrayList<>(to - from);
+        IntStream.range(from, to).forEach(i -> hashes.add(base62Encoder.encode(i, 6)));
+
+        return hashes;
+    }
+}
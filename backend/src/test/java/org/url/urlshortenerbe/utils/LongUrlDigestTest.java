@@ -0,0 +1,49 @@
+package org.url.urlshortenerbe.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class LongUrlDigestTest {
+    @Test
+    void lowercasesSchemeAndHostOnly() {
+        assertThat(LongUrlDigest.normalize("HTTPS://Example.COM/Path?Q=A#Frag"))
+                .isEqualTo("https://example.com/Path?Q=A#Frag");
+    }
+
+    @Test
+    void dropsDefaultPortsAndKeepsOthers() {
+        assertThat(LongUrlDigest.normalize("http://example.com:80/a")).isEqualTo("http://example.com/a");
+        assertThat(LongUrlDigest.normalize("https://example.com:443/a")).isEqualTo("https://example.com/a");
+        assertThat(LongUrlDigest.normalize("http://example.com:443/a")).isEqualTo("http://example.com:443/a");
+        assertThat(LongUrlDigest.normalize("https://example.com:8443/a")).isEqualTo("https://example.com:8443/a");
+    }
+
+    @Test
+    void turnsAnEmptyPathIntoSlash() {
+        assertThat(LongUrlDigest.normalize("https://example.com")).isEqualTo("https://example.com/");
+        assertThat(LongUrlDigest.normalize("https://example.com?a=1")).isEqualTo("https://example.com/?a=1");
+    }
+
+    @Test
+    void keepsUserInfoAndEncodingAsTheyAre() {
+        assertThat(LongUrlDigest.normalize("https://User:Pw@Example.com/a%2Fb?x=%20"))
+                .isEqualTo("https://User:Pw@example.com/a%2Fb?x=%20");
+    }
+
+    @Test
+    void trimsAndLeavesWhatIsNotAServerUrl() {
+        assertThat(LongUrlDigest.normalize("  https://example.com/a  ")).isEqualTo("https://example.com/a");
+        assertThat(LongUrlDigest.normalize("mailto:Someone@Example.com")).isEqualTo("mailto:Someone@Example.com");
+        assertThat(LongUrlDigest.normalize("not a url")).isEqualTo("not a url");
+        assertThat(LongUrlDigest.normalize("example.com/Path")).isEqualTo("example.com/Path");
+    }
+
+    @Test
+    void givesEquivalentUrlsTheSameDigest() {
+        assertThat(LongUrlDigest.of("HTTPS://EXAMPLE.com:443"))
+                .hasSize(LongUrlDigest.LENGTH)
+                .isEqualTo(LongUrlDigest.of("https://example.com/"));
+        assertThat(LongUrlDigest.of("https://example.com/a")).isNotEqualTo(LongUrlDigest.of("https://example.com/A"));
+    }
+}
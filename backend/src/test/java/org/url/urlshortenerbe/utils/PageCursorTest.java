@@ -0,0 +1,63 @@
+package org.url.urlshortenerbe.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.url.urlshortenerbe.exceptions.AppException;
+import org.url.urlshortenerbe.exceptions.ErrorCode;
+
+class PageCursorTest {
+    @Test
+    void decodesWhatItEncoded() {
+        assertThat(PageCursor.decodeLong(PageCursor.encode(42L))).isEqualTo(42L);
+        assertThat(PageCursor.decodeInt(PageCursor.encode(Integer.MAX_VALUE))).isEqualTo(Integer.MAX_VALUE);
+        assertThat(PageCursor.decodeString(PageCursor.encode("2024-01-01T00:00:00Z|a-b")))
+                .isEqualTo("2024-01-01T00:00:00Z|a-b");
+
+        // Url safe, no padding: the cursor goes into a query parameter as it is
+        assertThat(PageCursor.encode("??>>")).doesNotContain("+", "/", "=");
+    }
+
+    @Test
+    void startsFromTheBeginningOnAnEmptyCursor() {
+        assertThat(PageCursor.decodeLong("")).isZero();
+        assertThat(PageCursor.decodeInt("")).isZero();
+    }
+
+    @Test
+    void rejectsCursorsItDidNotIssue() {
+        assertInvalid(() -> PageCursor.decodeString("not base64!"));
+        assertInvalid(() -> PageCursor.decodeLong(PageCursor.encode("abc")));
+        assertInvalid(() -> PageCursor.decodeInt(PageCursor.encode(Integer.MAX_VALUE + 1L)));
+        assertInvalid(() -> PageCursor.decodeInt(PageCursor.encode(-1)));
+    }
+
+    @Test
+    void hasNoNextPageUpToSizeRows() {
+        PageCursor.Slice<Integer> slice = PageCursor.slice(List.of(1, 2, 3), 3, id -> id);
+
+        assertThat(slice.items()).containsExactly(1, 2, 3);
+        assertThat(slice.nextCursor()).isNull();
+
+        PageCursor.Slice<Integer> empty = PageCursor.slice(List.of(), 3, id -> id);
+
+        assertThat(empty.items()).isEmpty();
+        assertThat(empty.nextCursor()).isNull();
+    }
+
+    @Test
+    void dropsTheExtraRowAndPointsAfterTheLastItem() {
+        PageCursor.Slice<Integer> slice = PageCursor.slice(List.of(1, 2, 3, 4), 3, id -> id);
+
+        assertThat(slice.items()).containsExactly(1, 2, 3);
+        assertThat(PageCursor.decodeInt(slice.nextCursor())).isEqualTo(3);
+    }
+
+    private static void assertInvalid(Runnable decode) {
+        assertThatThrownBy(decode::run).isInstanceOfSatisfying(AppException.class, e -> assertThat(e.getErrorCode())
+                .isEqualTo(ErrorCode.CURSOR_INVALID));
+    }
+}
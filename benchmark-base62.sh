@@ -0,0 +1,35 @@
+#!/bin/bash
+set -e
+
+# Runs the JMH benchmark in backend/src/test (Base62EncoderBenchmark): the buffer based Base62Encoder against the
+# StringBuilder encoder it replaced, on its own and inside the MD5 short code generation of UrlService. Its setup
+# fails if both generations do not give the same codes.
+#
+# Usage: ./benchmark-base62.sh [url-length] [extra JMH options]
+
+SOURCE="${BASH_SOURCE[0]}"
+while [ -h "$SOURCE" ]; do
+  DIR="$(cd -P "$(dirname "$SOURCE")" && pwd)"
+  SOURCE="$(readlink "$SOURCE")"
+  [[ $SOURCE != /* ]] && SOURCE="$DIR/$SOURCE"
+done
+PROJECT_ROOT="$(cd -P "$(dirname "$SOURCE")" && pwd)"
+
+if ! command -v java &> /dev/null; then
+    echo "Error: java is not installed." >&2
+    exit 1
+fi
+
+LENGTH="${1:-6}"
+shift || true
+
+cd "$PROJECT_ROOT/backend"
+
+CLASSPATH_FILE="$(mktemp)"
+trap 'rm -f "$CLASSPATH_FILE"' EXIT
+
+# test-compile runs the JMH annotation processor, which generates the harness next to the test classes
+./mvnw -q -B test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile="$CLASSPATH_FILE"
+
+java -cp "target/test-classes:target/classes:$(cat "$CLASSPATH_FILE")" org.openjdk.jmh.Main \
+    Base62EncoderBenchmark -p length="$LENGTH" "$@"
@@ -0,0 +1,103 @@
+#!/bin/bash
+set -e
+
+# Measures upsert throughput on the counter of one extremely hot url as writers are added,
+# with a single counter row and with the row split into shards like click_counter_shard.
+# Runs against the mysqldb service of compose.yml, on a scratch table dropped at the end.
+#
+# Usage: ./benchmark-counter-contention.sh [upserts-per-writer] [shards]
+
+SOURCE="${BASH_SOURCE[0]}"
+while [ -h "$SOURCE" ]; do
+  DIR="$(cd -P "$(dirname "$SOURCE")" && pwd)"
+  SOURCE="$(readlink "$SOURCE")"
+  [[ $SOURCE != /* ]] && SOURCE="$DIR/$SOURCE"
+done
+PROJECT_ROOT="$(cd -P "$(dirname "$SOURCE")" && pwd)"
+
+if [ -f "$PROJECT_ROOT/.env" ]; then
+  source "$PROJECT_ROOT/.env"
+else
+  echo ".env not found in $PROJECT_ROOT" >&2
+  exit 1
+fi
+
+if command -v podman &> /dev/null; then
+    TOOL=podman
+elif command -v docker &> /dev/null; then
+    TOOL=docker
+else
+    echo "Error: podman or docker is not installed." >&2
+    exit 1
+fi
+
+UPSERTS="${1:-2000}"
+SHARDS="${2:-16}"
+WRITERS=(1 2 4 8 16 32)
+
+$TOOL compose -f "$PROJECT_ROOT/compose.yml" up -d mysqldb > /dev/null
+MYSQL_CONTAINER="$($TOOL compose -f "$PROJECT_ROOT/compose.yml" ps -q mysqldb)"
+
+mysql_exec() {
+  $TOOL exec -i "$MYSQL_CONTAINER" mysql -uroot -p"$MYSQL_ROOT_PASSWORD" "$MYSQL_DATABASE" 2> /dev/null
+}
+
+for _ in $(seq 1 60); do
+  if echo "SELECT 1" | mysql_exec > /dev/null; then
+    break
+  fi
+  sleep 1
+done
+
+# Same shape and statement as click_counter_shard and ClickCounterService, one autocommit upsert per call
+mysql_exec <<SQL
+DROP TABLE IF EXISTS counter_benchmark;
+CREATE TABLE counter_benchmark (
+  url_id INT NOT NULL,
+  shard INT NOT NULL,
+  clicks BIGINT NOT NULL,
+  PRIMARY KEY (url_id, shard)
+);
+DROP PROCEDURE IF EXISTS counter_benchmark_run;
+DELIMITER //
+CREATE PROCEDURE counter_benchmark_run(IN shards INT, IN upserts INT)
+BEGIN
+  DECLARE i INT DEFAULT 0;
+  WHILE i < upserts DO
+    INSERT INTO counter_benchmark (url_id, shard, clicks) VALUES (1, FLOOR(RAND() * shards), 1) AS new
+      ON DUPLICATE KEY UPDATE clicks = counter_benchmark.clicks + new.clicks;
+    SET i = i + 1;
+  END WHILE;
+END //
+DELIMITER ;
+SQL
+
+run() {
+  local shards=$1
+  local writers=$2
+
+  echo "TRUNCATE counter_benchmark" | mysql_exec
+
+  local started
+  started=$(date +%s%N)
+
+  for _ in $(seq 1 "$writers"); do
+    echo "CALL counter_benchmark_run($shards, $UPSERTS)" | mysql_exec &
+  done
+  wait
+
+  local elapsed=$(( $(date +%s%N) - started ))
+
+  echo "$(( writers * UPSERTS * 1000000000 / elapsed ))"
+}
+
+echo "Hot url counter upserts, $UPSERTS per writer"
+printf "  %-8s %14s %14s\n" "writers" "1 row/s" "$SHARDS shards/s"
+for writers in "${WRITERS[@]}"; do
+  printf "  %-8s %14s %14s\n" "$writers" "$(run 1 "$writers")" "$(run "$SHARDS" "$writers")"
+done
+
+mysql_exec <<SQL
+DROP PROCEDURE counter_benchmark_run;
+DROP TABLE counter_benchmark;
+SQL
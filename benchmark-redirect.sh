@@ -0,0 +1,99 @@
+#!/bin/bash
+set -e
+
+# Compares redirect throughput and backend CPU per request across execution modes:
+# platform threads, virtual threads, and the servlet fast path that skips security and MVC.
+# Each mode gets a fresh backend container from compose.yml and the same wrk load on one short url.
+#
+# Usage: ./benchmark-redirect.sh [duration-seconds] [connections]
+
+SOURCE="${BASH_SOURCE[0]}"
+while [ -h "$SOURCE" ]; do
+  DIR="$(cd -P "$(dirname "$SOURCE")" && pwd)"
+  SOURCE="$(readlink "$SOURCE")"
+  [[ $SOURCE != /* ]] && SOURCE="$DIR/$SOURCE"
+done
+PROJECT_ROOT="$(cd -P "$(dirname "$SOURCE")" && pwd)"
+
+if [ -f "$PROJECT_ROOT/.env" ]; then
+  source "$PROJECT_ROOT/.env"
+else
+  echo ".env not found in $PROJECT_ROOT" >&2
+  exit 1
+fi
+
+if command -v podman &> /dev/null; then
+    TOOL=podman
+elif command -v docker &> /dev/null; then
+    TOOL=docker
+else
+    echo "Error: podman or docker is not installed." >&2
+    exit 1
+fi
+
+if ! command -v wrk &> /dev/null; then
+    echo "Error: wrk is not installed." >&2
+    exit 1
+fi
+
+DURATION="${1:-30}"
+CONNECTIONS="${2:-400}"
+BASE_URL="http://127.0.0.1:$BACKEND_PORT"
+
+wait_for_backend() {
+  for _ in $(seq 1 120); do
+    if curl -sf "$BASE_URL/actuator/health" > /dev/null; then
+      return 0
+    fi
+    sleep 1
+  done
+
+  echo "Backend did not become healthy" >&2
+  exit 1
+}
+
+# CPU time consumed by the backend container so far, in microseconds (cgroup v2)
+backend_cpu_usec() {
+  $TOOL exec "$($TOOL compose -f "$PROJECT_ROOT/compose.yml" ps -q backend)" cat /sys/fs/cgroup/cpu.stat \
+    | awk '/usage_usec/ {print $2}'
+}
+
+run_mode() {
+  local name=$1
+  local virtual=$2
+  local fast_path=$3
+
+  SPRING_THREADS_VIRTUAL_ENABLED=$virtual REDIRECT_FAST_PATH_ENABLED=$fast_path \
+    $TOOL compose -f "$PROJECT_ROOT/compose.yml" up -d --build --force-recreate backend mysqldb > /dev/null
+  wait_for_backend
+
+  local hash
+  hash=$(curl -sf -X POST "$BASE_URL/api/urls" \
+    -H "Content-Type: application/json" \
+    -d '{"longUrl": "https://example.com/benchmark"}' | sed -E 's/.*"hash":"([^"]+)".*/\1/')
+
+  # Warm up the JIT and the redirect cache before measuring
+  wrk -t4 -c"$CONNECTIONS" -d10s -H "User-Agent: wrk" "$BASE_URL/$hash" > /dev/null
+
+  local cpu_before
+  cpu_before=$(backend_cpu_usec)
+
+  local report
+  report=$(wrk -t4 -c"$CONNECTIONS" -d"${DURATION}s" -H "User-Agent: wrk" "$BASE_URL/$hash")
+
+  local cpu_after
+  cpu_after=$(backend_cpu_usec)
+
+  local rps requests
+  rps=$(echo "$report" | awk '/Requests\/sec/ {print $2}')
+  requests=$(echo "$report" | awk '/requests in/ {print $1}')
+
+  $TOOL compose -f "$PROJECT_ROOT/compose.yml" stop backend > /dev/null
+
+  printf "  %-18s %10s req/s %8.1f us CPU/req\n" "$name" "$rps" "$(echo "($cpu_after - $cpu_before) / $requests" | bc -l)"
+}
+
+echo "Redirect load with $CONNECTIONS connections over ${DURATION}s"
+run_mode "platform threads" false false
+run_mode "virtual threads" true false
+run_mode "fast path" false true